@@ -0,0 +1,209 @@
+package com.google.sps.benchmarks;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.gson.Gson;
+import com.google.sps.classes.Comment;
+import com.google.sps.classes.CommentPage;
+import com.google.sps.classes.Json;
+import com.google.sps.servlets.CommentSearchIndexLoader;
+import com.google.sps.servlets.CommentServlet;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the comment read, serialization and post paths of {@code CommentServlet} against the
+ * local in-memory Datastore, seeded with {@code commentCount} comments. Each iteration starts
+ * from a fresh servlet and search index without the comments earlier iterations posted, so later
+ * iterations don't measure a larger index.
+ *
+ * <p>Throughput mode reports ops/s and sample mode reports the latency percentiles, including p99.
+ * Run with {@code -prof gc} to also get the allocation rate per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CommentServletBenchmark {
+
+  // Number of comments on one page of the blog
+  private static final int PAGE_SIZE = 25;
+
+  // Datastore accepts at most 500 entities per batch put
+  private static final int SEED_BATCH_SIZE = 500;
+
+  // Comments CommentServlet keeps in memory; deeper pages come from Datastore
+  private static final int CACHED_COMMENTS = 100;
+
+  // Name on the comments postComment adds, so they can be deleted between iterations
+  private static final String POSTER_NAME = "Benchmark";
+
+  // At least one page beyond the cached comments, so there is a Datastore page to read
+  @Param({"1000", "10000", "1000000"})
+  public int commentCount;
+
+  private LocalServiceTestHelper helper;
+  private DatastoreService datastore;
+  private long seedTime;
+  private CommentServlet servlet;
+  private StringWriter body;
+  private HttpServletResponse response;
+  private HttpServletRequest firstPageRequest;
+  private HttpServletRequest deepPageRequest;
+  private HttpServletRequest postRequest;
+  private CommentPage page;
+  private Gson gson;
+
+  @Setup(Level.Trial)
+  public void setUp() throws ServletException {
+    // The local Datastore is bound to the thread that sets it up, which for a thread-scoped
+    // state is the benchmark thread itself.
+    helper = new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+    helper.setUp();
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    seedTime = System.currentTimeMillis();
+    seed(datastore, commentCount, seedTime);
+
+    body = new StringWriter();
+    response = ServletStubs.response(body);
+    firstPageRequest = ServletStubs.request(pageParameters(null));
+    // Starts halfway through the comments past the in-memory cache, so the page has to come from
+    // Datastore and is full
+    int deepPageStart = CACHED_COMMENTS + (commentCount - CACHED_COMMENTS - PAGE_SIZE) / 2;
+    deepPageRequest =
+        ServletStubs.request(pageParameters(CommentPage.cursorAfter(seeded(deepPageStart - 1))));
+
+    Map<String, String> postParameters = new HashMap<>();
+    postParameters.put("name-input", POSTER_NAME);
+    postParameters.put("message", "A comment posted by the benchmark");
+    postRequest = ServletStubs.request(postParameters);
+
+    List<Comment> comments = new ArrayList<>();
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      comments.add(new Comment("id-" + i, "Author " + (i % 5), "Comment number " + i, i));
+    }
+    page = new CommentPage(comments, CommentPage.cursorAfter(comments.get(PAGE_SIZE - 1)));
+    gson = Json.GSON;
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpIteration() throws ServletException {
+    // Only the seeded comments are left, so the index and cache start the same every iteration
+    Query posted = new Query("Comment").setKeysOnly().setFilter(
+        new FilterPredicate("name", FilterOperator.EQUAL, POSTER_NAME));
+    List<Key> postedKeys = new ArrayList<>();
+    for (Entity entity : datastore.prepare(posted).asIterable()) {
+      postedKeys.add(entity.getKey());
+    }
+    datastore.delete(postedKeys);
+
+    ServletContext context = ServletStubs.context();
+    new CommentSearchIndexLoader().contextInitialized(new ServletContextEvent(context));
+    servlet = new CommentServlet();
+    servlet.init(ServletStubs.config(context));
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDownIteration() {
+    servlet.destroy();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Benchmark
+  public int readFirstPage() throws IOException {
+    body.getBuffer().setLength(0);
+    servlet.doGet(firstPageRequest, response);
+    return body.getBuffer().length();
+  }
+
+  @Benchmark
+  public int readDatastorePage() throws IOException {
+    body.getBuffer().setLength(0);
+    servlet.doGet(deepPageRequest, response);
+    return body.getBuffer().length();
+  }
+
+  @Benchmark
+  public int serializePage() {
+    body.getBuffer().setLength(0);
+    gson.toJson(page, CommentPage.class, body);
+    return body.getBuffer().length();
+  }
+
+  @Benchmark
+  public void postComment() throws IOException {
+    servlet.doPost(postRequest, response);
+  }
+
+  private static Map<String, String> pageParameters(String cursor) {
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("commentsQuantity", String.valueOf(PAGE_SIZE));
+    if (cursor != null) {
+      parameters.put("cursor", cursor);
+    }
+    return parameters;
+  }
+
+  /** Returns the {@code i}th newest seeded comment, as {@link #seed} stored it. */
+  private Comment seeded(int i) {
+    return new Comment("seed-" + i, "Author " + (i % 50), "Seeded comment number " + i,
+        seedTime - i);
+  }
+
+  private static void seed(DatastoreService datastore, int commentCount, long now) {
+    List<Entity> batch = new ArrayList<>(SEED_BATCH_SIZE);
+    for (int i = 0; i < commentCount; i++) {
+      // Named, so the deep page's cursor can be worked out without reading the comment back
+      Entity comment = new Entity("Comment", "seed-" + i);
+      comment.setProperty("name", "Author " + (i % 50));
+      comment.setProperty("message", "Seeded comment number " + i);
+      comment.setProperty("timestamp", new Date(now - i));
+      batch.add(comment);
+
+      if (batch.size() == SEED_BATCH_SIZE) {
+        datastore.put(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      datastore.put(batch);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.google.sps.benchmarks;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal stand-ins for the servlet container objects, so servlets can be driven directly from a
+ * benchmark. Anything a stub doesn't handle returns the type's default value.
+ */
+final class ServletStubs {
+
+  private ServletStubs() {
+    // Disallow instances.
+  }
+
+  /** Returns a request whose only state is {@code parameters}; it sends no headers. */
+  static HttpServletRequest request(Map<String, String> parameters) {
+    return stub(HttpServletRequest.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getParameter":
+          return parameters.get(args[0]);
+        case "getDateHeader":
+          return -1L;
+        default:
+          return defaultValue(method);
+      }
+    });
+  }
+
+  /** Returns a response whose body is written to {@code body}. */
+  static HttpServletResponse response(StringWriter body) {
+    PrintWriter writer = new PrintWriter(body);
+    return stub(HttpServletResponse.class, (method, args) -> {
+      if (method.getName().equals("getWriter")) {
+        return writer;
+      }
+      return defaultValue(method);
+    });
+  }
+
+  /** Returns a servlet context that only supports attributes. */
+  static ServletContext context() {
+    Map<String, Object> attributes = Collections.synchronizedMap(new HashMap<>());
+    return stub(ServletContext.class, (method, args) -> {
+      switch (method.getName()) {
+        case "getAttribute":
+          return attributes.get(args[0]);
+        case "setAttribute":
+          attributes.put((String) args[0], args[1]);
+          return null;
+        case "removeAttribute":
+          attributes.remove(args[0]);
+          return null;
+        default:
+          return defaultValue(method);
+      }
+    });
+  }
+
+  static ServletConfig config(ServletContext context) {
+    return stub(ServletConfig.class, (method, args) ->
+        method.getName().equals("getServletContext") ? context : defaultValue(method));
+  }
+
+  private interface Handler {
+    Object invoke(Method method, Object[] args);
+  }
+
+  private static <T> T stub(Class<T> type, Handler handler) {
+    Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        (self, method, args) -> handler.invoke(method, args));
+    return type.cast(proxy);
+  }
+
+  private static Object defaultValue(Method method) {
+    Class<?> type = method.getReturnType();
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,180 @@
+package com.google.sps.classes;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Sorted primitive indexes over (province, percentage) rows, built once when the data is loaded.
+ * Percentage ranges are answered by binary search over rows sorted by percentage and province
+ * prefixes by binary search over rows sorted by lower-cased name, so a query only visits the
+ * rows it returns.
+ */
+public final class AccessibilityIndex {
+
+  /** The order in which matching rows are returned. */
+  public enum Order { ROW, PERCENTAGE_ASCENDING, PERCENTAGE_DESCENDING, NAME }
+
+  private final String[] provinces;
+  private final int[] percentages;
+
+  // Row numbers sorted by percentage, with the percentages alongside for binary search
+  private final int[] rowsByPercentage;
+  private final int[] sortedPercentages;
+
+  // Row numbers sorted by lower-cased province name, with the names alongside for binary search
+  private final int[] rowsByName;
+  private final String[] sortedNames;
+
+  public AccessibilityIndex(String[] provinces, int[] percentages) {
+    if (provinces.length != percentages.length) {
+      throw new IllegalArgumentException("Every province needs exactly one percentage");
+    }
+    this.provinces = provinces.clone();
+    this.percentages = percentages.clone();
+
+    int rowCount = provinces.length;
+    Integer[] rows = new Integer[rowCount];
+    for (int row = 0; row < rowCount; row++) {
+      rows[row] = row;
+    }
+
+    Arrays.sort(rows, Comparator.comparingInt((Integer row) -> percentages[row]));
+    rowsByPercentage = new int[rowCount];
+    sortedPercentages = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      rowsByPercentage[i] = rows[i];
+      sortedPercentages[i] = percentages[rows[i]];
+    }
+
+    String[] lowerCaseNames = new String[rowCount];
+    for (int row = 0; row < rowCount; row++) {
+      lowerCaseNames[row] = provinces[row].toLowerCase(Locale.ROOT);
+    }
+    Arrays.sort(rows, Comparator.comparing((Integer row) -> lowerCaseNames[row]));
+    rowsByName = new int[rowCount];
+    sortedNames = new String[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      rowsByName[i] = rows[i];
+      sortedNames[i] = lowerCaseNames[rows[i]];
+    }
+  }
+
+  public int rowCount() {
+    return provinces.length;
+  }
+
+  public String getProvince(int row) {
+    return provinces[row];
+  }
+
+  public int getPercentage(int row) {
+    return percentages[row];
+  }
+
+  /**
+   * Returns the rows whose percentage is within [{@code minPercentage}, {@code maxPercentage}] and
+   * whose province starts with {@code provincePrefix} (ignoring case, null for any), in the given
+   * order and cut to at most {@code limit} rows.
+   */
+  public int[] query(int minPercentage, int maxPercentage, String provincePrefix, Order order,
+      int limit) {
+    int[] candidates;
+    if (provincePrefix != null && !provincePrefix.isEmpty()) {
+      String prefix = provincePrefix.toLowerCase(Locale.ROOT);
+      int from = lowerBound(sortedNames, prefix);
+      // Every name with the prefix sorts before the prefix followed by the largest char
+      int to = lowerBound(sortedNames, prefix + Character.MAX_VALUE);
+      candidates = filterByPercentage(Arrays.copyOfRange(rowsByName, from, to), minPercentage,
+          maxPercentage);
+    } else {
+      int from = lowerBound(sortedPercentages, minPercentage);
+      int to = maxPercentage == Integer.MAX_VALUE
+          ? sortedPercentages.length : lowerBound(sortedPercentages, maxPercentage + 1);
+      candidates = Arrays.copyOfRange(rowsByPercentage, from, Math.max(from, to));
+      if (order == Order.PERCENTAGE_ASCENDING || order == Order.PERCENTAGE_DESCENDING) {
+        // Already in percentage order, so the top rows can be cut straight from the range
+        return slice(candidates, order == Order.PERCENTAGE_DESCENDING, limit);
+      }
+    }
+
+    sort(candidates, order);
+    return candidates.length > limit ? Arrays.copyOf(candidates, limit) : candidates;
+  }
+
+  private int[] filterByPercentage(int[] rows, int minPercentage, int maxPercentage) {
+    int count = 0;
+    for (int row : rows) {
+      if (percentages[row] >= minPercentage && percentages[row] <= maxPercentage) {
+        rows[count++] = row;
+      }
+    }
+    return Arrays.copyOf(rows, count);
+  }
+
+  private void sort(int[] rows, Order order) {
+    switch (order) {
+      case PERCENTAGE_ASCENDING:
+        sortBy(rows, Comparator.comparingInt((Integer row) -> percentages[row]));
+        break;
+      case PERCENTAGE_DESCENDING:
+        sortBy(rows, Comparator.comparingInt((Integer row) -> -percentages[row]));
+        break;
+      case NAME:
+        sortBy(rows,
+            Comparator.comparing((Integer row) -> provinces[row].toLowerCase(Locale.ROOT)));
+        break;
+      default:
+        Arrays.sort(rows);
+    }
+  }
+
+  private static void sortBy(int[] rows, Comparator<Integer> comparator) {
+    Integer[] boxed = new Integer[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      boxed[i] = rows[i];
+    }
+    Arrays.sort(boxed, comparator);
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = boxed[i];
+    }
+  }
+
+  private static int[] slice(int[] rows, boolean reverse, int limit) {
+    int count = Math.min(limit, rows.length);
+    int[] slice = new int[count];
+    for (int i = 0; i < count; i++) {
+      slice[i] = reverse ? rows[rows.length - 1 - i] : rows[i];
+    }
+    return slice;
+  }
+
+  /** Returns the first index whose value is at least {@code key}. */
+  private static int lowerBound(int[] sorted, int key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static int lowerBound(String[] sorted, String key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid].compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -1,18 +1,43 @@
 package com.google.sps.classes;
 
-import java.util.Date;
+import java.util.Comparator;
 
+/**
+ * A single blog comment. The time is kept as epoch milliseconds rather than a {@code Date}.
+ * {@code RecentCommentsCache} shares one copy of each author name between the comments it holds,
+ * since the same few people leave most of the comments.
+ */
 public class Comment {
+  /**
+   * Orders comments newest first, and comments posted in the same millisecond by id, so every
+   * comment has a fixed place that a page cursor can resume after.
+   */
+  public static final Comparator<Comment> NEWEST_FIRST = (a, b) -> {
+    int byTime = Long.compare(b.time, a.time);
+    return (byTime != 0) ? byTime : compareIds(a.id, b.id);
+  };
+
+  private String id;
   private String name;
   private String message;
-  private Date time;
+  private long time;
+
+  public Comment(String name, String message, long time) {
+    this(null, name, message, time);
+  }
 
-  public Comment(String name, String message, Date time) {
+  public Comment(String id, String name, String message, long time) {
+    this.id = id;
     this.name = name;
     this.message = message;
     this.time = time;
   }
 
+  /** Returns the id of the comment's Datastore key, or null if it was not read from one. */
+  public String getId() {
+    return this.id;
+  }
+
   public String getMessage() {
     return this.message;
   }
@@ -21,8 +46,20 @@ public class Comment {
     return this.name;
   }
 
-  public Date getTime(){
+  /** Returns when the comment was posted, in milliseconds since the epoch. */
+  public long getTime(){
     return this.time;
   }
 
-}
\ No newline at end of file
+  /** Returns true if this comment comes after the one posted at {@code time} with {@code id}. */
+  public boolean isAfter(long time, String id) {
+    return this.time < time || (this.time == time && compareIds(this.id, id) > 0);
+  }
+
+  private static int compareIds(String a, String b) {
+    if (a == null || b == null) {
+      return (a == null) ? ((b == null) ? 0 : -1) : 1;
+    }
+    return a.compareTo(b);
+  }
+}
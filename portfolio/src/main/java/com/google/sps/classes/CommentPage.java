@@ -0,0 +1,31 @@
+package com.google.sps.classes;
+
+import java.util.List;
+
+/** One page of comments plus the opaque cursor a client sends back to fetch the next page. */
+public class CommentPage {
+  private List<Comment> comments;
+  private String cursor;
+
+  public CommentPage(List<Comment> comments, String cursor) {
+    this.comments = comments;
+    this.cursor = cursor;
+  }
+
+  public List<Comment> getComments() {
+    return this.comments;
+  }
+
+  public String getCursor() {
+    return this.cursor;
+  }
+
+  /**
+   * Returns the cursor for the page after one ending with {@code last}, as its time and id. Unlike
+   * a position in a list, it still points at the same place after newer comments are posted.
+   */
+  public static String cursorAfter(Comment last) {
+    return last.getTime() + ":" + last.getId();
+  }
+
+}
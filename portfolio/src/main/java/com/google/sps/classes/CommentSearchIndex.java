@@ -0,0 +1,162 @@
+package com.google.sps.classes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over comment messages and author names. Each term maps to a postings
+ * list of (comment, weight) pairs, and queries are ranked by a tf-idf score so only the comments
+ * that share a term with the query are ever looked at.
+ */
+public class CommentSearchIndex {
+  // A match in the author's name counts for more than one in the message body
+  private static final int NAME_WEIGHT = 3;
+  private static final int MESSAGE_WEIGHT = 1;
+
+  private final List<Comment> comments = new ArrayList<>();
+  private final Map<String, Postings> postingsByTerm = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Adds {@code comment} to the index. */
+  public void add(Comment comment) {
+    Map<String, Integer> weights = new HashMap<>();
+    addTerms(weights, comment.getName(), NAME_WEIGHT);
+    addTerms(weights, comment.getMessage(), MESSAGE_WEIGHT);
+
+    lock.writeLock().lock();
+    try {
+      int docId = comments.size();
+      comments.add(comment);
+      for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+        postingsByTerm.computeIfAbsent(entry.getKey(), term -> new Postings())
+            .add(docId, entry.getValue());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Replaces the whole index with {@code allComments}, which must be ordered oldest first. */
+  public void rebuild(Iterable<Comment> allComments) {
+    lock.writeLock().lock();
+    try {
+      comments.clear();
+      postingsByTerm.clear();
+      for (Comment comment : allComments) {
+        add(comment);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns up to {@code limit} comments matching {@code query}, best match first. */
+  public List<Comment> search(String query, int limit) {
+    // A word repeated in the query counts once, so it can't outweigh the other words
+    Set<String> terms = new LinkedHashSet<>(tokenize(query));
+    if (terms.isEmpty() || limit < 1) {
+      return Collections.emptyList();
+    }
+
+    lock.readLock().lock();
+    try {
+      // Only comments that contain a query term get an entry, so scoring costs O(matching postings)
+      // however many comments the index holds
+      Map<Integer, Float> scores = new HashMap<>();
+
+      for (String term : terms) {
+        Postings postings = postingsByTerm.get(term);
+        if (postings == null) {
+          continue;
+        }
+        // Rare terms say more about a comment than ones that appear everywhere
+        float idf = (float) Math.log(1.0 + (double) comments.size() / postings.size);
+        for (int i = 0; i < postings.size; i++) {
+          scores.merge(postings.docIds[i], postings.weights[i] * idf, Float::sum);
+        }
+      }
+
+      // Keep the best {@code limit} hits in a min-heap so ranking costs O(hits log limit)
+      // Ties go to the newer comment, which has the higher id
+      PriorityQueue<Map.Entry<Integer, Float>> best = new PriorityQueue<>(limit + 1, (a, b) ->
+          !a.getValue().equals(b.getValue())
+              ? Float.compare(a.getValue(), b.getValue())
+              : Integer.compare(a.getKey(), b.getKey()));
+      for (Map.Entry<Integer, Float> hit : scores.entrySet()) {
+        best.add(hit);
+        if (best.size() > limit) {
+          best.poll();
+        }
+      }
+
+      Comment[] results = new Comment[best.size()];
+      for (int i = results.length - 1; i >= 0; i--) {
+        results[i] = comments.get(best.poll().getKey());
+      }
+      return Arrays.asList(results);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return comments.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+    for (String term : tokenize(text)) {
+      weights.merge(term, weight, Integer::sum);
+    }
+  }
+
+  /** Splits {@code text} into lower-case runs of letters and digits. */
+  private static List<String> tokenize(String text) {
+    List<String> terms = new ArrayList<>();
+    if (text == null) {
+      return terms;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (isWordChar && start < 0) {
+        start = i;
+      } else if (!isWordChar && start >= 0) {
+        terms.add(text.substring(start, i).toLowerCase());
+        start = -1;
+      }
+    }
+    return terms;
+  }
+
+  /** Growable parallel arrays of comment ids and their weight for one term. */
+  private static class Postings {
+    private int[] docIds = new int[4];
+    private int[] weights = new int[4];
+    private int size;
+
+    private void add(int docId, int weight) {
+      if (size == docIds.length) {
+        docIds = Arrays.copyOf(docIds, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+      docIds[size] = docId;
+      weights[size] = weight;
+      size++;
+    }
+  }
+
+}
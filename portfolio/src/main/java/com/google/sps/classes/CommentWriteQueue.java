@@ -0,0 +1,169 @@
+package com.google.sps.classes;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind buffer for new comment entities. While a put is running, new entities are held
+ * until the batch fills up or the oldest one has waited long enough, and are then stored with a
+ * single asynchronous batch put. When no put is running there is nothing to batch behind, so an
+ * entity is put straight away rather than left waiting for traffic that may never come.
+ *
+ * <p>App Engine request threads can't leave work running after the request ends, so the time
+ * threshold is checked whenever the servlet handles a request rather than by a timer thread.
+ *
+ * <p>A batch whose put fails goes back on the queue and is tried again with the next flush, up to
+ * {@code MAX_ATTEMPTS} times; failures are logged rather than thrown at whichever request happens
+ * to flush next.
+ */
+public class CommentWriteQueue {
+  private static final Logger logger = Logger.getLogger(CommentWriteQueue.class.getName());
+
+  // Puts of a batch before its comments are given up on
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final AsyncDatastoreService datastore;
+  private final int batchSize;
+  private final long maxDelayMillis;
+  private final int maxInFlightBatches;
+
+  private final List<Entity> pending = new ArrayList<>();
+  // Failed puts so far of each pending entity that has been tried before
+  private final Map<Entity, Integer> attempts = new IdentityHashMap<>();
+  private final ArrayDeque<Batch> inFlight = new ArrayDeque<>();
+  private long oldestPendingMillis;
+
+  public CommentWriteQueue(AsyncDatastoreService datastore, int batchSize, long maxDelayMillis,
+      int maxInFlightBatches) {
+    if (batchSize < 1 || maxInFlightBatches < 1) {
+      throw new IllegalArgumentException("Batch size and in-flight batches must be at least 1");
+    }
+    this.datastore = datastore;
+    this.batchSize = batchSize;
+    this.maxDelayMillis = maxDelayMillis;
+    this.maxInFlightBatches = maxInFlightBatches;
+  }
+
+  /** Buffers {@code entity}, flushing straight away if the batch is full or no put is running. */
+  public synchronized void add(Entity entity) {
+    if (pending.isEmpty()) {
+      oldestPendingMillis = System.currentTimeMillis();
+    }
+    pending.add(entity);
+
+    reapFinished();
+    if (pending.size() >= batchSize || inFlight.isEmpty()) {
+      flush();
+    }
+  }
+
+  /**
+   * Flushes the pending batch if its oldest entity has waited longer than the maximum delay, or if
+   * the puts it was waiting behind have finished.
+   */
+  public synchronized void flushIfDue() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    reapFinished();
+    if (inFlight.isEmpty() || System.currentTimeMillis() - oldestPendingMillis >= maxDelayMillis) {
+      flush();
+    }
+  }
+
+  /**
+   * Starts an asynchronous batch put of everything pending. When too many batches are already in
+   * flight the caller blocks on the oldest one first, so a burst of posts can't queue up unbounded
+   * work against Datastore.
+   */
+  public synchronized void flush() {
+    reapFinished();
+    while (inFlight.size() >= maxInFlightBatches) {
+      await(inFlight.removeFirst());
+    }
+    // Waiting may have put failed batches back, so check for work only now
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    List<Entity> entities = new ArrayList<>(pending);
+    inFlight.addLast(new Batch(entities, datastore.put(entities)));
+    pending.clear();
+  }
+
+  /** Flushes everything pending and waits for every outstanding put, retrying failed ones. */
+  public synchronized void drain() {
+    while (!pending.isEmpty() || !inFlight.isEmpty()) {
+      flush();
+      while (!inFlight.isEmpty()) {
+        await(inFlight.removeFirst());
+      }
+    }
+  }
+
+  public synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  private void reapFinished() {
+    while (!inFlight.isEmpty() && inFlight.peekFirst().put.isDone()) {
+      await(inFlight.removeFirst());
+    }
+  }
+
+  /** Waits for {@code batch} to be stored, queueing it again if the put failed. */
+  private void await(Batch batch) {
+    try {
+      batch.put.get();
+      for (Entity entity : batch.entities) {
+        attempts.remove(entity);
+      }
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(Level.WARNING, "Interrupted while storing comments", e);
+    } catch (ExecutionException e) {
+      logger.log(Level.WARNING, "Failed to store " + batch.entities.size() + " comments",
+          e.getCause());
+    }
+
+    List<Entity> retries = new ArrayList<>();
+    for (Entity entity : batch.entities) {
+      int failures = attempts.merge(entity, 1, Integer::sum);
+      if (failures < MAX_ATTEMPTS) {
+        retries.add(entity);
+      } else {
+        attempts.remove(entity);
+        logger.log(Level.SEVERE, "Gave up storing comment " + entity.getKey() + " after "
+            + failures + " attempts");
+      }
+    }
+    if (pending.isEmpty()) {
+      oldestPendingMillis = System.currentTimeMillis();
+    }
+    // Retried entities are older than anything pending, so they go first
+    pending.addAll(0, retries);
+  }
+
+  /** Entities handed to one batch put, kept so they can be queued again if it fails. */
+  private static final class Batch {
+    private final List<Entity> entities;
+    private final Future<List<Key>> put;
+
+    private Batch(List<Entity> entities, Future<List<Key>> put) {
+      this.entities = entities;
+      this.put = put;
+    }
+  }
+
+}
@@ -0,0 +1,338 @@
+package com.google.sps.classes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented table parsed from a simple comma-separated file (no quoting or escapes). Numeric
+ * columns are parsed straight from the bytes into primitive arrays without creating a String per
+ * cell, and large inputs are split on line boundaries and parsed in parallel.
+ */
+public final class CsvTable {
+
+  /** How the cells of a column are parsed and stored. */
+  public enum ColumnType { STRING, INT, DOUBLE }
+
+  // Inputs smaller than this are parsed on the calling thread
+  private static final int MIN_CHUNK_BYTES = 64 * 1024;
+
+  private final ColumnType[] types;
+  private final Object[] columns;
+  private final int rowCount;
+
+  private CsvTable(ColumnType[] types, Object[] columns, int rowCount) {
+    this.types = types;
+    this.columns = columns;
+    this.rowCount = rowCount;
+  }
+
+  /** Memory-maps {@code file} and parses it with one column per entry of {@code types}. */
+  public static CsvTable map(Path file, ColumnType... types) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), types);
+    }
+  }
+
+  /** Reads all of {@code csv}, for data that isn't a plain file such as a web app resource. */
+  public static CsvTable read(InputStream csv, ColumnType... types) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = csv.read(buffer)) != -1) {
+      bytes.write(buffer, 0, read);
+    }
+    return parse(ByteBuffer.wrap(bytes.toByteArray()), types);
+  }
+
+  /** Parses the bytes between the buffer's position and limit. Blank lines are skipped. */
+  public static CsvTable parse(ByteBuffer data, ColumnType... types) {
+    int[] bounds = chunkBounds(data);
+    int chunkCount = bounds.length - 1;
+
+    Chunk[] chunks = new Chunk[chunkCount];
+    IntStream indices = IntStream.range(0, chunkCount);
+    if (chunkCount > 1) {
+      indices = indices.parallel();
+    }
+    indices.forEach(i -> chunks[i] = new Chunk(types).parse(data, bounds[i], bounds[i + 1]));
+
+    int rowCount = 0;
+    for (Chunk chunk : chunks) {
+      rowCount += chunk.rows;
+    }
+
+    Object[] columns = new Object[types.length];
+    for (int c = 0; c < types.length; c++) {
+      columns[c] = concat(types[c], chunks, c, rowCount);
+    }
+    return new CsvTable(types.clone(), columns, rowCount);
+  }
+
+  public int rowCount() {
+    return rowCount;
+  }
+
+  public String getString(int column, int row) {
+    return stringColumn(column)[row];
+  }
+
+  public int getInt(int column, int row) {
+    return intColumn(column)[row];
+  }
+
+  public double getDouble(int column, int row) {
+    return doubleColumn(column)[row];
+  }
+
+  /** Returns the backing array of a string column; callers must not modify it. */
+  public String[] stringColumn(int column) {
+    return (String[]) checkedColumn(column, ColumnType.STRING);
+  }
+
+  /** Returns the backing array of an int column; callers must not modify it. */
+  public int[] intColumn(int column) {
+    return (int[]) checkedColumn(column, ColumnType.INT);
+  }
+
+  /** Returns the backing array of a double column; callers must not modify it. */
+  public double[] doubleColumn(int column) {
+    return (double[]) checkedColumn(column, ColumnType.DOUBLE);
+  }
+
+  private Object checkedColumn(int column, ColumnType type) {
+    if (types[column] != type) {
+      throw new IllegalArgumentException(
+          "Column " + column + " is " + types[column] + ", not " + type);
+    }
+    return columns[column];
+  }
+
+  /** Splits the data into roughly equal chunks that each start at the beginning of a line. */
+  private static int[] chunkBounds(ByteBuffer data) {
+    int start = data.position();
+    int end = data.limit();
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    int chunkCount = Math.max(1, Math.min(parallelism, (end - start) / MIN_CHUNK_BYTES));
+
+    int[] bounds = new int[chunkCount + 1];
+    bounds[0] = start;
+    int count = 1;
+    for (int i = 1; i < chunkCount; i++) {
+      int split = Math.max(bounds[count - 1], start + (int) ((long) (end - start) * i / chunkCount));
+      while (split < end && data.get(split) != '\n') {
+        split++;
+      }
+      if (split < end) {
+        bounds[count++] = split + 1;
+      }
+    }
+    bounds[count++] = end;
+    return Arrays.copyOf(bounds, count);
+  }
+
+  private static Object concat(ColumnType type, Chunk[] chunks, int column, int rowCount) {
+    Object merged;
+    switch (type) {
+      case INT:
+        merged = new int[rowCount];
+        break;
+      case DOUBLE:
+        merged = new double[rowCount];
+        break;
+      default:
+        merged = new String[rowCount];
+    }
+    int offset = 0;
+    for (Chunk chunk : chunks) {
+      System.arraycopy(chunk.columns[column], 0, merged, offset, chunk.rows);
+      offset += chunk.rows;
+    }
+    return merged;
+  }
+
+  /** Growable column arrays for the rows of one chunk. */
+  private static final class Chunk {
+    private final ColumnType[] types;
+    private final Object[] columns;
+    private int rows;
+    private int capacity = 256;
+
+    private Chunk(ColumnType[] types) {
+      this.types = types;
+      this.columns = new Object[types.length];
+      for (int c = 0; c < types.length; c++) {
+        columns[c] = newColumn(types[c], capacity);
+      }
+    }
+
+    private Chunk parse(ByteBuffer data, int start, int end) {
+      int lineStart = start;
+      while (lineStart < end) {
+        int lineEnd = lineStart;
+        while (lineEnd < end && data.get(lineEnd) != '\n') {
+          lineEnd++;
+        }
+        int contentEnd = lineEnd;
+        if (contentEnd > lineStart && data.get(contentEnd - 1) == '\r') {
+          contentEnd--;
+        }
+        if (contentEnd > lineStart) {
+          parseLine(data, lineStart, contentEnd);
+        }
+        lineStart = lineEnd + 1;
+      }
+      return this;
+    }
+
+    private void parseLine(ByteBuffer data, int start, int end) {
+      if (rows == capacity) {
+        grow();
+      }
+      int cellStart = start;
+      for (int c = 0; c < types.length; c++) {
+        int cellEnd = cellStart;
+        while (cellEnd < end && data.get(cellEnd) != ',') {
+          cellEnd++;
+        }
+        if (cellStart > end) {
+          throw new IllegalArgumentException("Expected " + types.length + " columns in line: "
+              + decode(data, start, end));
+        }
+        switch (types[c]) {
+          case INT:
+            ((int[]) columns[c])[rows] = parseInt(data, cellStart, cellEnd);
+            break;
+          case DOUBLE:
+            ((double[]) columns[c])[rows] = parseDouble(data, cellStart, cellEnd);
+            break;
+          default:
+            ((String[]) columns[c])[rows] = decode(data, cellStart, cellEnd);
+        }
+        cellStart = cellEnd + 1;
+      }
+      rows++;
+    }
+
+    private void grow() {
+      capacity *= 2;
+      for (int c = 0; c < types.length; c++) {
+        Object grown = newColumn(types[c], capacity);
+        System.arraycopy(columns[c], 0, grown, 0, rows);
+        columns[c] = grown;
+      }
+    }
+  }
+
+  private static Object newColumn(ColumnType type, int capacity) {
+    switch (type) {
+      case INT:
+        return new int[capacity];
+      case DOUBLE:
+        return new double[capacity];
+      default:
+        return new String[capacity];
+    }
+  }
+
+  private static int parseInt(ByteBuffer data, int start, int end) {
+    int i = start;
+    boolean negative = i < end && data.get(i) == '-';
+    if (negative || (i < end && data.get(i) == '+')) {
+      i++;
+    }
+    if (i == end) {
+      throw malformed(data, start, end);
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = data.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw malformed(data, start, end);
+      }
+      value = value * 10 + digit;
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        throw malformed(data, start, end);
+      }
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE) {
+      throw malformed(data, start, end);
+    }
+    return (int) value;
+  }
+
+  // Powers of ten that are exactly representable as doubles
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  /**
+   * Parses plain decimals such as {@code -122.7144313} directly. When the digits fit in 53 bits and
+   * there are at most 22 decimals, one exact division gives the correctly rounded result; anything
+   * else (exponents, very long values) falls back to {@code Double.parseDouble}.
+   */
+  private static double parseDouble(ByteBuffer data, int start, int end) {
+    int i = start;
+    boolean negative = i < end && data.get(i) == '-';
+    if (negative || (i < end && data.get(i) == '+')) {
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int decimals = -1;
+    for (; i < end; i++) {
+      byte b = data.get(i);
+      if (b == '.' && decimals < 0) {
+        decimals = 0;
+      } else if (b >= '0' && b <= '9') {
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (decimals >= 0) {
+          decimals++;
+        }
+        if (mantissa >= (1L << 53)) {
+          return parseDoubleSlow(data, start, end);
+        }
+      } else {
+        return parseDoubleSlow(data, start, end);
+      }
+    }
+    if (digits == 0) {
+      throw malformed(data, start, end);
+    }
+    decimals = Math.max(decimals, 0);
+    if (decimals >= POWERS_OF_TEN.length) {
+      return parseDoubleSlow(data, start, end);
+    }
+    double value = mantissa / POWERS_OF_TEN[decimals];
+    return negative ? -value : value;
+  }
+
+  private static double parseDoubleSlow(ByteBuffer data, int start, int end) {
+    try {
+      return Double.parseDouble(decode(data, start, end));
+    } catch (NumberFormatException e) {
+      throw malformed(data, start, end);
+    }
+  }
+
+  private static String decode(ByteBuffer data, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = data.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static IllegalArgumentException malformed(ByteBuffer data, int start, int end) {
+    return new IllegalArgumentException("Malformed number: '" + decode(data, start, end) + "'");
+  }
+}
@@ -0,0 +1,114 @@
+package com.google.sps.classes;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+/**
+ * Width-bounded copies of source images, generated with ImageIO on first use and kept on disk
+ * under the source's content hash and the width. Later requests for the same variant are a file
+ * read, and an edited source gets a new hash so stale variants are never served.
+ */
+public final class ImageVariants {
+  private final Path cacheDirectory;
+  private final int[] widths;
+
+  /**
+   * Creates a cache in {@code cacheDirectory} that only produces the given {@code widths}, so a
+   * client cannot fill the disk by asking for every width in turn.
+   */
+  public ImageVariants(Path cacheDirectory, int... widths) throws IOException {
+    if (widths.length == 0) {
+      throw new IllegalArgumentException("At least one width is required");
+    }
+    this.cacheDirectory = Files.createDirectories(cacheDirectory);
+    this.widths = widths.clone();
+    Arrays.sort(this.widths);
+  }
+
+  /** Returns the smallest supported width that is at least {@code requested}, or the largest. */
+  public int snapWidth(int requested) {
+    for (int width : widths) {
+      if (width >= requested) {
+        return width;
+      }
+    }
+    return widths[widths.length - 1];
+  }
+
+  /** Returns a short hex SHA-256 of {@code source}, used both as the cache key and as a version. */
+  public static String hash(byte[] source) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(source);
+      StringBuilder hex = new StringBuilder();
+      for (int i = 0; i < 8; i++) {
+        hex.append(String.format("%02x", digest[i]));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Returns the file holding {@code source} scaled down to at most {@code width} pixels wide,
+   * creating it if needed. Images already narrower than {@code width} are stored unchanged rather
+   * than scaled up. {@code format} is an ImageIO format name such as {@code png} or {@code jpg}.
+   */
+  public Path getVariant(byte[] source, String hash, String format, int width) throws IOException {
+    Path variant = cacheDirectory.resolve(hash + "-" + width + "." + format);
+    if (Files.exists(variant)) {
+      return variant;
+    }
+
+    BufferedImage original = ImageIO.read(new ByteArrayInputStream(source));
+    if (original == null) {
+      throw new IOException("Unreadable image " + hash);
+    }
+
+    // Write to a private file and rename it into place, so concurrent first requests for the same
+    // variant never see a half-written file
+    Path temp = Files.createTempFile(cacheDirectory, hash, ".tmp");
+    try {
+      if (original.getWidth() <= width) {
+        Files.write(temp, source);
+      } else if (!ImageIO.write(scale(original, width, format), format, temp.toFile())) {
+        throw new IOException("No ImageIO writer for " + format);
+      }
+      Files.move(temp, variant, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    return variant;
+  }
+
+  private static BufferedImage scale(BufferedImage original, int width, String format) {
+    int height = Math.max(1, (int) Math.round((double) original.getHeight() * width
+        / original.getWidth()));
+    // JPEG has no alpha channel, and ImageIO refuses to write ARGB images as JPEG
+    boolean alpha = original.getColorModel().hasAlpha() && format.equals("png");
+    BufferedImage scaled = new BufferedImage(width, height,
+        alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+
+    Graphics2D graphics = scaled.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+          RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(original, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return scaled;
+  }
+}
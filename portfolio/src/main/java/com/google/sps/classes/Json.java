@@ -0,0 +1,123 @@
+package com.google.sps.classes;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The one {@code Gson} instance shared by every servlet. It is thread-safe, and the portfolio's
+ * own classes are written by the hand-written adapters below instead of by reflection, so there is
+ * no per-request setup and no reflective field walk on the first request.
+ */
+public final class Json {
+
+  public static final Gson GSON = new GsonBuilder()
+      .registerTypeAdapter(Comment.class, new CommentAdapter().nullSafe())
+      .registerTypeAdapter(CommentPage.class, new CommentPageAdapter().nullSafe())
+      .create();
+
+  private Json() {
+    // Disallow instances.
+  }
+
+  /** Writes a comment as {"name": ..., "message": ..., "time": ...}, leaving out null fields. */
+  private static final class CommentAdapter extends TypeAdapter<Comment> {
+    @Override
+    public void write(JsonWriter out, Comment comment) throws IOException {
+      out.beginObject();
+      if (comment.getName() != null) {
+        out.name("name").value(comment.getName());
+      }
+      if (comment.getMessage() != null) {
+        out.name("message").value(comment.getMessage());
+      }
+      out.name("time").value(comment.getTime());
+      out.endObject();
+    }
+
+    @Override
+    public Comment read(JsonReader in) throws IOException {
+      String name = null;
+      String message = null;
+      long time = 0;
+      in.beginObject();
+      while (in.hasNext()) {
+        String field = in.nextName();
+        if (in.peek() == JsonToken.NULL) {
+          in.nextNull();
+          continue;
+        }
+        switch (field) {
+          case "name":
+            name = in.nextString();
+            break;
+          case "message":
+            message = in.nextString();
+            break;
+          case "time":
+            time = in.nextLong();
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return new Comment(name, message, time);
+    }
+  }
+
+  /** Reads and writes a page as {"comments": [...], "cursor": ...}, leaving out a null cursor. */
+  private static final class CommentPageAdapter extends TypeAdapter<CommentPage> {
+    private final CommentAdapter commentAdapter = new CommentAdapter();
+
+    @Override
+    public void write(JsonWriter out, CommentPage page) throws IOException {
+      out.beginObject();
+      out.name("comments").beginArray();
+      for (Comment comment : page.getComments()) {
+        commentAdapter.write(out, comment);
+      }
+      out.endArray();
+      if (page.getCursor() != null) {
+        out.name("cursor").value(page.getCursor());
+      }
+      out.endObject();
+    }
+
+    @Override
+    public CommentPage read(JsonReader in) throws IOException {
+      List<Comment> comments = new ArrayList<>();
+      String cursor = null;
+      in.beginObject();
+      while (in.hasNext()) {
+        String field = in.nextName();
+        if (in.peek() == JsonToken.NULL) {
+          in.nextNull();
+          continue;
+        }
+        switch (field) {
+          case "comments":
+            in.beginArray();
+            while (in.hasNext()) {
+              comments.add(commentAdapter.read(in));
+            }
+            in.endArray();
+            break;
+          case "cursor":
+            cursor = in.nextString();
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return new CommentPage(comments, cursor);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.google.sps.classes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, newest-first cache of the most recent comments. Writers add comments as they are
+ * stored, and readers are served from memory as long as the requested page fits in the cache.
+ * Comments are kept in {@link Comment#NEWEST_FIRST} order, so pages resume from a comment's time
+ * and id rather than from a position that shifts as comments arrive.
+ */
+public class RecentCommentsCache {
+  // Author names remembered for sharing. Names are user input, so unlike String.intern the table
+  // is bounded, dropping the least recently seen name first.
+  private static final int MAX_SHARED_NAMES = 256;
+
+  private final int capacity;
+  private final TreeSet<Comment> comments = new TreeSet<>(Comment.NEWEST_FIRST);
+  private final Map<String, String> sharedNames =
+      new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+          return size() > MAX_SHARED_NAMES;
+        }
+      };
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public RecentCommentsCache(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Cache capacity must be at least 1: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /** Replaces the cache contents with {@code newestFirst}, keeping at most the capacity. */
+  public synchronized void load(Collection<Comment> newestFirst) {
+    comments.clear();
+    for (Comment comment : newestFirst) {
+      add(comment);
+    }
+  }
+
+  /**
+   * Adds a newly stored comment, evicting the oldest one when the cache is full. Returns the
+   * comment as cached, which shares its author name with earlier comments by the same person, so
+   * callers that keep it too should keep the returned one.
+   */
+  public synchronized Comment add(Comment comment) {
+    Comment cached = withSharedName(comment);
+    comments.add(cached);
+    if (comments.size() > capacity) {
+      comments.pollLast();
+    }
+    return cached;
+  }
+
+  private Comment withSharedName(Comment comment) {
+    String name = comment.getName();
+    if (name == null) {
+      return comment;
+    }
+    String shared = sharedNames.get(name);
+    if (shared == null) {
+      sharedNames.put(name, name);
+      return comment;
+    }
+    if (shared == name) {
+      return comment;
+    }
+    return new Comment(comment.getId(), shared, comment.getMessage(), comment.getTime());
+  }
+
+  /**
+   * Returns the {@code count} newest comments, or null if the cache can't tell that there are no
+   * more and they have to be read from Datastore instead.
+   */
+  public synchronized List<Comment> getNewest(int count) {
+    return getPage(Long.MAX_VALUE, null, count);
+  }
+
+  /**
+   * Returns the {@code count} comments that come after the one posted at {@code time} with
+   * {@code id}, or null if the page reaches past what the cache holds.
+   */
+  public synchronized List<Comment> getNewestAfter(long time, String id, int count) {
+    return getPage(time, id, count);
+  }
+
+  private List<Comment> getPage(long time, String id, int count) {
+    List<Comment> page = new ArrayList<>(Math.min(count, comments.size()));
+    for (Comment comment : comments) {
+      if (page.size() == count) {
+        break;
+      }
+      if (comment.isAfter(time, id)) {
+        page.add(comment);
+      }
+    }
+    // A cache that isn't full holds every comment, so a short page is the end of them
+    boolean holdsEverything = comments.size() < capacity;
+    if (page.size() < count && !holdsEverything) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return page;
+  }
+
+  /** Returns the time of the newest comment in milliseconds, or 0 if there are no comments. */
+  public synchronized long getNewestTimeMillis() {
+    return comments.isEmpty() ? 0 : comments.first().getTime();
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+}
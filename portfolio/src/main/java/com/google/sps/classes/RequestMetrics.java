@@ -0,0 +1,74 @@
+package com.google.sps.classes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint request latency, status code and response size counters, written in the
+ * Prometheus text exposition format.
+ */
+public final class RequestMetrics {
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+  /** Records one finished request to {@code path}. */
+  public void record(String path, long latencyNanos, int status, long bytes) {
+    Endpoint endpoint = endpoints.computeIfAbsent(path, key -> new Endpoint());
+    endpoint.latency.record(latencyNanos);
+    endpoint.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    endpoint.bytes.add(bytes);
+  }
+
+  /** Appends every metric to {@code out} in the Prometheus text format. */
+  public void writePrometheus(StringBuilder out) {
+    out.append("# HELP http_request_duration_seconds Request latency by endpoint.\n");
+    out.append("# TYPE http_request_duration_seconds summary\n");
+    for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+      String path = escape(entry.getKey());
+      LatencyHistogram latency = entry.getValue().latency;
+      for (double quantile : QUANTILES) {
+        out.append("http_request_duration_seconds{path=\"").append(path)
+            .append("\",quantile=\"").append(quantile).append("\"} ")
+            .append(seconds(latency.getValueAtQuantile(quantile))).append('\n');
+      }
+      out.append("http_request_duration_seconds_sum{path=\"").append(path).append("\"} ")
+          .append(seconds(latency.getSumNanos())).append('\n');
+      out.append("http_request_duration_seconds_count{path=\"").append(path).append("\"} ")
+          .append(latency.getCount()).append('\n');
+    }
+
+    out.append("# HELP http_responses_total Responses by endpoint and status code.\n");
+    out.append("# TYPE http_responses_total counter\n");
+    for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+      String path = escape(entry.getKey());
+      for (Map.Entry<Integer, LongAdder> status : entry.getValue().statuses.entrySet()) {
+        out.append("http_responses_total{path=\"").append(path)
+            .append("\",status=\"").append(status.getKey()).append("\"} ")
+            .append(status.getValue().sum()).append('\n');
+      }
+    }
+
+    out.append("# HELP http_response_bytes_total Response body bytes by endpoint.\n");
+    out.append("# TYPE http_response_bytes_total counter\n");
+    for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+      out.append("http_response_bytes_total{path=\"").append(escape(entry.getKey())).append("\"} ")
+          .append(entry.getValue().bytes.sum()).append('\n');
+    }
+  }
+
+  private static double seconds(long nanos) {
+    return nanos / 1e9;
+  }
+
+  private static String escape(String labelValue) {
+    return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static final class Endpoint {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final LongAdder bytes = new LongAdder();
+  }
+}
@@ -0,0 +1,46 @@
+package com.google.sps.servlets;
+
+import com.google.sps.classes.Comment;
+import com.google.sps.classes.CommentSearchIndex;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/** Builds the comment search index from Datastore at startup and shares it through the context. */
+@WebListener
+public class CommentSearchIndexLoader implements ServletContextListener {
+
+  private static final String INDEX_ATTRIBUTE = CommentSearchIndex.class.getName();
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+
+    List<Comment> allComments = new ArrayList<>();
+    for (Entity entity: datastore.prepare(CommentServlet.newCommentQuery()).asIterable()) {
+      allComments.add(CommentServlet.toComment(entity));
+    }
+    // The query is newest first but the index wants comments in the order they were posted
+    Collections.reverse(allComments);
+
+    CommentSearchIndex index = new CommentSearchIndex();
+    index.rebuild(allComments);
+    event.getServletContext().setAttribute(INDEX_ATTRIBUTE, index);
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    event.getServletContext().removeAttribute(INDEX_ATTRIBUTE);
+  }
+
+  static CommentSearchIndex getIndex(ServletContext context) {
+    return (CommentSearchIndex) context.getAttribute(INDEX_ATTRIBUTE);
+  }
+}
@@ -1,17 +1,30 @@
 package com.google.sps.servlets;
 
 import com.google.sps.classes.Comment;
+import com.google.sps.classes.CommentPage;
+import com.google.sps.classes.CommentWriteQueue;
+import com.google.sps.classes.Json;
+import com.google.sps.classes.RecentCommentsCache;
+import com.google.appengine.api.datastore.AsyncDatastoreService;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.PreparedQuery;
+import com.google.appengine.api.datastore.PropertyProjection;
 import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.api.datastore.QueryResultIterator;
 import com.google.appengine.api.datastore.Query.SortDirection;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
 import java.util.Date;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -19,34 +32,148 @@ import javax.servlet.http.HttpServletResponse;
 
 @WebServlet("/add-comment")
 public class CommentServlet extends HttpServlet {
-  
- @Override
-  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
-    Query query = new Query("Comment").addSort("timestamp", SortDirection.DESCENDING);
+  // Number of newest comments kept in memory; deeper pages are read from Datastore
+  private static final int CACHED_COMMENTS = 100;
+
+  // Datastore results are read in chunks of at most this many comments
+  private static final int MAX_CHUNK_SIZE = 500;
+
+  // New comments are stored in batches of this size, or sooner once the oldest has waited this long
+  private static final int WRITE_BATCH_SIZE = 20;
+  private static final long WRITE_MAX_DELAY_MILLIS = 2000;
+  private static final int WRITE_MAX_IN_FLIGHT_BATCHES = 4;
+
+  private final RecentCommentsCache recentComments = new RecentCommentsCache(CACHED_COMMENTS);
+
+  private CommentWriteQueue writeQueue;
+
+  @Override
+  public void init() {
+    Query query = newCommentQuery();
 
     DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
     PreparedQuery results = datastore.prepare(query);
 
-    List<Comment> commentList = new ArrayList<>();
+    List<Comment> newestComments = new ArrayList<>();
+    for (Entity entity: results.asIterable(FetchOptions.Builder.withLimit(CACHED_COMMENTS))) {
+      newestComments.add(toComment(entity));
+    }
+    recentComments.load(newestComments);
 
-    for (Entity entity: results.asIterable()) {
+    AsyncDatastoreService asyncDatastore = DatastoreServiceFactory.getAsyncDatastoreService();
+    writeQueue = new CommentWriteQueue(asyncDatastore, WRITE_BATCH_SIZE, WRITE_MAX_DELAY_MILLIS,
+        WRITE_MAX_IN_FLIGHT_BATCHES);
+  }
 
-      String name = (String) entity.getProperty("name");
-      String message = (String) entity.getProperty("message");
-      Date time = (Date) entity.getProperty("timestamp");
+  @Override
+  public void destroy() {
+    writeQueue.drain();
+  }
 
-      commentList.add(new Comment(name, message, time));
-    }
+ @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    writeQueue.flushIfDue();
 
     int numCommentsRequested = getNumComments(request);
+    String startCursor = request.getParameter("cursor");
+
+    // Any new comment can change every page, so the newest timestamp validates them all
+    long newestTime = recentComments.getNewestTimeMillis();
+    // Last-Modified only has one-second resolution, so a comment posted later in the same second as
+    // the newest one would not change it. Until that second is over, only the ETag is sent.
+    boolean secondIsOver = System.currentTimeMillis() / 1000 > newestTime / 1000;
+    long lastModified = secondIsOver ? newestTime : -1;
+    if (ConditionalGet.notModified(request, response, "\"" + newestTime + "\"", lastModified)) {
+      return;
+    }
 
-    if (commentList.size() > numCommentsRequested){
-      commentList = commentList.subList(0, numCommentsRequested);
+    // The cursor is the time and id of the last comment shown, see CommentPage.cursorAfter
+    long afterTime = Long.MAX_VALUE;
+    String afterId = null;
+    if (startCursor != null && !startCursor.isEmpty()) {
+      int separator = startCursor.indexOf(':');
+      try {
+        afterTime = Long.parseLong(startCursor.substring(0, Math.max(separator, 0)));
+      } catch (NumberFormatException e) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed cursor");
+        return;
+      }
+      afterId = startCursor.substring(separator + 1);
     }
 
     response.setContentType("application/json;");
-    response.getWriter().println(convertToJsonUsingGson(commentList));
+    Gson gson = Json.GSON;
+    JsonWriter jsonWriter = gson.newJsonWriter(response.getWriter());
+
+    List<Comment> cached = (afterId == null)
+        ? recentComments.getNewest(numCommentsRequested)
+        : recentComments.getNewestAfter(afterTime, afterId, numCommentsRequested);
+    if (cached != null) {
+      String nextCursor =
+          cached.isEmpty() ? null : CommentPage.cursorAfter(cached.get(cached.size() - 1));
+      gson.toJson(new CommentPage(cached, nextCursor), CommentPage.class, jsonWriter);
+      jsonWriter.flush();
+      return;
+    }
+
+    streamDatastorePage(gson, jsonWriter, numCommentsRequested, afterTime, afterId);
+    jsonWriter.flush();
+  }
+
+  /**
+   * Streams one page of comments from Datastore in the same shape as {@code CommentPage}, writing
+   * each comment as it comes off the query iterator instead of building the whole list first. The
+   * page starts after the comment posted at {@code afterTime} with {@code afterId}, if there is
+   * one, so it costs O(page size) however deep it is.
+   */
+  private static void streamDatastorePage(Gson gson, JsonWriter jsonWriter, int numCommentsRequested,
+      long afterTime, String afterId) throws IOException {
+    Query query = newCommentQuery();
+    if (afterId != null) {
+      query.setFilter(new FilterPredicate("timestamp", FilterOperator.LESS_THAN_OR_EQUAL,
+          new Date(afterTime)));
+    }
+
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    PreparedQuery results = datastore.prepare(query);
+
+    // The page may need a few more results than requested to get past the cursor's own timestamp
+    int chunkSize = Math.min(numCommentsRequested + 1, MAX_CHUNK_SIZE);
+    QueryResultIterator<Entity> iterator = results.asQueryResultIterator(
+        FetchOptions.Builder.withChunkSize(chunkSize).prefetchSize(chunkSize));
+
+    jsonWriter.beginObject();
+    jsonWriter.name("comments").beginArray();
+    Comment last = null;
+    int written = 0;
+    // Datastore orders comments with equal timestamps by their other indexed properties, so each
+    // run of them is collected and put in id order before any are written
+    List<Comment> sameTime = new ArrayList<>();
+    while (written < numCommentsRequested) {
+      Comment next = iterator.hasNext() ? toComment(iterator.next()) : null;
+      if (!sameTime.isEmpty() && (next == null || next.getTime() != sameTime.get(0).getTime())) {
+        sameTime.sort(Comment.NEWEST_FIRST);
+        for (Comment comment : sameTime) {
+          if (written < numCommentsRequested && comment.isAfter(afterTime, afterId)) {
+            gson.toJson(comment, Comment.class, jsonWriter);
+            last = comment;
+            written++;
+          }
+        }
+        sameTime.clear();
+      }
+      if (next == null) {
+        break;
+      }
+      sameTime.add(next);
+    }
+    jsonWriter.endArray();
+
+    if (last != null) {
+      jsonWriter.name("cursor").value(CommentPage.cursorAfter(last));
+    }
+    jsonWriter.endObject();
   }
 
   @Override
@@ -55,18 +182,48 @@ public class CommentServlet extends HttpServlet {
     String name = getParameter(request, "name-input", "anonymous");
     String message = getParameter(request, "message", "empty comment");
 
-    Entity newComment = new Entity("Comment");
+    // Named up front, so the comment has the id its page cursors use before it is stored
+    Entity newComment = new Entity("Comment", UUID.randomUUID().toString());
 
     newComment.setProperty("name", name);
     newComment.setProperty("message", message);
     newComment.setProperty("timestamp", new Date());
 
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    datastore.put(newComment);
+    // The cache sees the comment straight away, so the poster reads their own write even while
+    // the entity is still waiting in the write-behind queue
+    Comment comment = recentComments.add(toComment(newComment));
+    CommentSearchIndexLoader.getIndex(getServletContext()).add(comment);
+
+    ResponseCacheFilter.invalidate(getServletContext(), "/search-comments");
+
+    writeQueue.add(newComment);
+    writeQueue.flushIfDue();
 
     response.sendRedirect("/blogposts.html");
   }
 
+  /**
+   * Returns the newest-first comment query, projected onto the three properties a {@code Comment}
+   * needs so Datastore returns them from the index instead of loading whole entities.
+   */
+  static Query newCommentQuery() {
+    return new Query("Comment")
+        .addProjection(new PropertyProjection("name", String.class))
+        .addProjection(new PropertyProjection("message", String.class))
+        .addProjection(new PropertyProjection("timestamp", Date.class))
+        .addSort("timestamp", SortDirection.DESCENDING);
+  }
+
+  static Comment toComment(Entity entity) {
+    String name = (String) entity.getProperty("name");
+    String message = (String) entity.getProperty("message");
+    Date time = (Date) entity.getProperty("timestamp");
+
+    Key key = entity.getKey();
+    String id = (key.getName() != null) ? key.getName() : Long.toString(key.getId());
+    return new Comment(id, name, message, time.getTime());
+  }
+
   private static int getNumComments(HttpServletRequest request){
     String userChoiceString = request.getParameter("commentsQuantity");
 
@@ -86,10 +243,4 @@ public class CommentServlet extends HttpServlet {
     value = (value == null) ? defaultValue : value; 
     return value;
   }
-
-  private static String convertToJsonUsingGson(List<Comment> commentList) {
-    Gson gson = new Gson();
-    String json = gson.toJson(commentList);
-    return json;
-  }
 }
\ No newline at end of file
@@ -0,0 +1,438 @@
+package com.google.sps.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Compresses JSON responses with gzip or deflate, whichever the client prefers in
+ * {@code Accept-Encoding}. Bodies smaller than {@code minBytes}, responses that already have a
+ * {@code Content-Encoding} and content types that are already compressed are sent as they are.
+ * The compression level is {@code level} unless {@code levels} overrides it for a path, e.g.
+ * {@code /transit-data=9}.
+ *
+ * <p>A compressed body is a different representation from the plain one, so its {@code ETag} gets
+ * the encoding appended, e.g. {@code "abc-gzip"}, as {@code EncodedBody} does. When the client
+ * sends such a tag back in {@code If-None-Match}, the servlet sees it both as sent and without the
+ * suffix, so it recognizes the tag whether it or this filter added the encoding.
+ *
+ * <p>Mapped in web.xml, after {@code MetricsFilter} and before {@code ResponseCacheFilter}, so
+ * the cache holds plain bodies and this filter tags whatever the cache replays.
+ */
+public class CompressionFilter implements Filter {
+
+  private int minBytes;
+  private int defaultLevel;
+  private final Map<String, Integer> levelsByPath = new HashMap<>();
+  private DeflaterPool deflaters;
+
+  @Override
+  public void init(FilterConfig config) {
+    minBytes = Integer.parseInt(config.getInitParameter("minBytes"));
+    defaultLevel = Integer.parseInt(config.getInitParameter("level"));
+    String levels = config.getInitParameter("levels");
+    if (levels != null && !levels.isEmpty()) {
+      for (String entry : levels.split(",")) {
+        String[] pathAndLevel = entry.trim().split("=");
+        levelsByPath.put(pathAndLevel[0], Integer.parseInt(pathAndLevel[1]));
+      }
+    }
+    deflaters = new DeflaterPool(Integer.parseInt(config.getInitParameter("maxIdleDeflaters")));
+  }
+
+  @Override
+  public void destroy() {
+    deflaters.clear();
+  }
+
+  @Override
+  public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+      FilterChain chain) throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) servletRequest;
+    HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+    String encoding = negotiate(request.getHeader("Accept-Encoding"));
+    if (!request.getMethod().equals("GET") || encoding == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    response.addHeader("Vary", "Accept-Encoding");
+    int level = levelsByPath.getOrDefault(request.getServletPath(), defaultLevel);
+    CompressingResponse compressing = new CompressingResponse(response, encoding, level);
+    EncodedTagRequest tagged = new EncodedTagRequest(request, encoding);
+    boolean completed = false;
+    try {
+      chain.doFilter(tagged, compressing);
+      completed = true;
+    } finally {
+      if (completed) {
+        compressing.finish(tagged);
+      } else {
+        // Leave the error to the container rather than send it as a half-compressed 200
+        compressing.abandon();
+      }
+    }
+  }
+
+  /** Returns {@code etag} with {@code encoding} added inside the quotes. */
+  static String encodedTag(String etag, String encoding) {
+    if (etag == null || !etag.endsWith("\"")) {
+      return etag;
+    }
+    return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+  }
+
+  /**
+   * Returns "gzip" or "deflate", whichever {@code acceptEncoding} gives the higher quality (gzip on
+   * a tie), or null if the client accepts neither.
+   */
+  static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return null;
+    }
+    double gzipQuality = 0;
+    double deflateQuality = 0;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      double quality = 1;
+      for (int i = 1; i < parts.length; i++) {
+        String parameter = parts[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(parameter.substring(2));
+          } catch (NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      String name = parts[0].trim().toLowerCase(Locale.ROOT);
+      if (name.equals("gzip") || name.equals("*")) {
+        gzipQuality = Math.max(gzipQuality, quality);
+      }
+      if (name.equals("deflate") || name.equals("*")) {
+        deflateQuality = Math.max(deflateQuality, quality);
+      }
+    }
+    if (gzipQuality <= 0 && deflateQuality <= 0) {
+      return null;
+    }
+    return gzipQuality >= deflateQuality ? "gzip" : "deflate";
+  }
+
+  private static boolean isAlreadyCompressed(String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    String type = contentType.toLowerCase(Locale.ROOT);
+    return type.startsWith("image/") || type.startsWith("video/") || type.startsWith("audio/")
+        || type.startsWith("application/zip") || type.startsWith("application/gzip")
+        || type.startsWith("application/octet-stream")
+        // Event streams must reach the client as they are written, not when a block fills up
+        || type.startsWith("text/event-stream");
+  }
+
+  /**
+   * Buffers the start of the body until it is large enough to be worth compressing. If the servlet
+   * flushes before then, the response is treated as a stream and sent uncompressed.
+   */
+  private final class CompressingResponse extends HttpServletResponseWrapper {
+    private final HttpServletResponse response;
+    private final String encoding;
+    private final int level;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private OutputStream target;
+    private DeflatingStream deflating;
+    private long contentLength = -1;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    private CompressingResponse(HttpServletResponse response, String encoding, int level) {
+      super(response);
+      this.response = response;
+      this.encoding = encoding;
+      this.level = level;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+      setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+      // The length is only known once we have decided whether to compress
+      contentLength = length;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      if (name.equalsIgnoreCase("Content-Length")) {
+        setContentLengthLong(Long.parseLong(value));
+      } else {
+        super.setHeader(name, value);
+      }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      if (outputStream == null) {
+        outputStream = new ServletOutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+          }
+
+          @Override
+          public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (target == null) {
+              buffer.write(bytes, offset, length);
+              if (buffer.size() >= minBytes) {
+                decide(true);
+              }
+            } else {
+              target.write(bytes, offset, length);
+            }
+          }
+
+          @Override
+          public void flush() throws IOException {
+            if (target == null) {
+              decide(false);
+            }
+            target.flush();
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setWriteListener(WriteListener listener) {
+            // The filter is not async-supported, so per the servlet spec there can be no listener
+            throw new IllegalStateException("Compressed responses are written synchronously");
+          }
+        };
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+      }
+      return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      getOutputStream().flush();
+    }
+
+    /** Picks compressed or plain output and writes out whatever was buffered so far. */
+    private void decide(boolean largeEnough) throws IOException {
+      boolean compress = largeEnough
+          && response.getStatus() == HttpServletResponse.SC_OK
+          && response.getHeader("Content-Encoding") == null
+          && !isAlreadyCompressed(response.getContentType());
+
+      if (compress) {
+        response.setHeader("Content-Encoding", encoding);
+        response.setHeader("ETag", encodedTag(response.getHeader("ETag"), encoding));
+        boolean gzip = encoding.equals("gzip");
+        deflating = new DeflatingStream(response.getOutputStream(),
+            deflaters.borrow(level, gzip), gzip);
+        target = deflating;
+      } else {
+        if (contentLength >= 0) {
+          response.setContentLengthLong(contentLength);
+        }
+        target = response.getOutputStream();
+      }
+      buffer.writeTo(target);
+      buffer.reset();
+    }
+
+    /** Writes out the rest of the body once the servlet is done. */
+    private void finish(EncodedTagRequest request) throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      if (response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+        // Confirm the representation the client actually holds, unless the servlet matched the
+        // tag as sent because it added the encoding itself
+        String etag = response.getHeader("ETag");
+        if (request.strippedTags.contains(etag)) {
+          response.setHeader("ETag", encodedTag(etag, encoding));
+        }
+        return;
+      }
+      if (target == null) {
+        // The whole body fit under the threshold, so send it as it is with its exact length
+        response.setContentLength(buffer.size());
+        target = response.getOutputStream();
+        buffer.writeTo(target);
+      }
+      if (deflating != null) {
+        deflating.finish();
+        deflating = null;
+      }
+    }
+
+    /** Gives back the deflater without writing anything more, after the servlet failed. */
+    private void abandon() {
+      if (deflating != null) {
+        deflating.release();
+        deflating = null;
+      }
+    }
+  }
+
+  /**
+   * Adds each tag in {@code If-None-Match} that ends in the encoding again without the suffix, so
+   * a servlet that only knows the identity tag matches a body this filter compressed. The tag as
+   * sent stays too, for servlets such as {@code EncodedBody} that set the encoding themselves.
+   */
+  private static final class EncodedTagRequest extends HttpServletRequestWrapper {
+    private final String suffix;
+    // The identity tags added for tags the client sent with the suffix
+    private final Set<String> strippedTags = new HashSet<>();
+
+    private EncodedTagRequest(HttpServletRequest request, String encoding) {
+      super(request);
+      this.suffix = "-" + encoding + "\"";
+    }
+
+    @Override
+    public String getHeader(String name) {
+      String value = super.getHeader(name);
+      if (value == null || !name.equalsIgnoreCase("If-None-Match")) {
+        return value;
+      }
+      StringBuilder tags = new StringBuilder(value);
+      for (String tag : value.split(",")) {
+        tag = tag.trim();
+        if (tag.endsWith(suffix)) {
+          String stripped = tag.substring(0, tag.length() - suffix.length()) + "\"";
+          strippedTags.add(stripped);
+          tags.append(", ").append(stripped);
+        }
+      }
+      return tags.toString();
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      if (!name.equalsIgnoreCase("If-None-Match") || super.getHeader(name) == null) {
+        return super.getHeaders(name);
+      }
+      return Collections.enumeration(Collections.singletonList(getHeader(name)));
+    }
+  }
+
+  /**
+   * Deflates into the response using a pooled deflater, adding the gzip header and trailer when
+   * {@code gzip} is set. The deflater goes back to the pool when the stream is finished.
+   */
+  private final class DeflatingStream extends OutputStream {
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final boolean gzip;
+    private final CRC32 crc = new CRC32();
+    private final byte[] chunk = new byte[8192];
+
+    private DeflatingStream(OutputStream out, Deflater deflater, boolean gzip) throws IOException {
+      this.out = out;
+      this.deflater = deflater;
+      this.gzip = gzip;
+      if (gzip) {
+        // Magic number, deflate method, no flags, no modification time, no extra flags, unknown OS
+        out.write(new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (gzip) {
+        crc.update(bytes, offset, length);
+      }
+      deflater.setInput(bytes, offset, length);
+      while (!deflater.needsInput()) {
+        drain(Deflater.NO_FLUSH);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      drain(Deflater.SYNC_FLUSH);
+      out.flush();
+    }
+
+    private void finish() throws IOException {
+      try {
+        deflater.finish();
+        while (!deflater.finished()) {
+          drain(Deflater.NO_FLUSH);
+        }
+        if (gzip) {
+          writeIntLittleEndian((int) crc.getValue());
+          writeIntLittleEndian(deflater.getTotalIn());
+        }
+      } finally {
+        release();
+      }
+    }
+
+    private void release() {
+      deflaters.release(deflater, gzip);
+    }
+
+    private void drain(int flushMode) throws IOException {
+      int length;
+      do {
+        length = deflater.deflate(chunk, 0, chunk.length, flushMode);
+        out.write(chunk, 0, length);
+      } while (length == chunk.length);
+    }
+
+    private void writeIntLittleEndian(int value) throws IOException {
+      out.write(value & 0xff);
+      out.write((value >>> 8) & 0xff);
+      out.write((value >>> 16) & 0xff);
+      out.write((value >>> 24) & 0xff);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.google.sps.servlets;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Validator helpers so polling clients get 304 Not Modified instead of an unchanged body. */
+final class ConditionalGet {
+
+  private ConditionalGet() {
+    // Disallow instances.
+  }
+
+  /** Returns a strong ETag derived from a hash of {@code content}. */
+  static String contentTag(String content) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+      StringBuilder tag = new StringBuilder("\"");
+      for (int i = 0; i < 8; i++) {
+        tag.append(String.format("%02x", hash[i]));
+      }
+      return tag.append('"').toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Sets the validator headers on {@code response} and, if the request's {@code If-None-Match} or
+   * {@code If-Modified-Since} header shows the client already has this version, sends 304 Not
+   * Modified. Returns true when the caller should not write a body. A {@code lastModifiedMillis}
+   * of -1 leaves out {@code Last-Modified}, so the client validates with the ETag alone.
+   */
+  static boolean notModified(HttpServletRequest request, HttpServletResponse response, String etag,
+      long lastModifiedMillis) {
+    response.setHeader("ETag", etag);
+    if (lastModifiedMillis != -1) {
+      response.setDateHeader("Last-Modified", lastModifiedMillis);
+    }
+    // Let clients keep the body but make them revalidate before each use
+    response.setHeader("Cache-Control", "no-cache");
+
+    boolean matches = isCurrent(request, etag, lastModifiedMillis);
+    if (matches) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+    return matches;
+  }
+
+  /**
+   * Returns true if the request's {@code If-None-Match} or {@code If-Modified-Since} header shows
+   * the client already has the version with {@code etag} and {@code lastModifiedMillis}. Either
+   * may be unknown, as null or -1.
+   */
+  static boolean isCurrent(HttpServletRequest request, String etag, long lastModifiedMillis) {
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null) {
+      // If-None-Match takes precedence over If-Modified-Since when both are sent
+      return etag != null && etagMatches(ifNoneMatch, etag);
+    }
+    long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+    // HTTP dates only have one-second resolution
+    return ifModifiedSince != -1 && lastModifiedMillis != -1
+        && lastModifiedMillis / 1000 <= ifModifiedSince / 1000;
+  }
+
+  /** Formats {@code millis} as an HTTP date, e.g. {@code Sun, 06 Nov 1994 08:49:37 GMT}. */
+  static String formatDate(long millis) {
+    return httpDateFormat().format(new Date(millis));
+  }
+
+  /** Parses an HTTP date as written by {@link #formatDate}, or returns -1 if it can't. */
+  static long parseDate(String date) {
+    if (date == null) {
+      return -1;
+    }
+    try {
+      return httpDateFormat().parse(date).getTime();
+    } catch (ParseException e) {
+      return -1;
+    }
+  }
+
+  private static SimpleDateFormat httpDateFormat() {
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format;
+  }
+
+  private static boolean etagMatches(String ifNoneMatch, String etag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -13,7 +13,7 @@
 // limitations under the License.
 
 package com.google.sps.servlets;
-import com.google.gson.Gson;
+import com.google.sps.classes.Json;
 import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
@@ -28,15 +28,25 @@ public class DataServlet extends HttpServlet {
 
   private List<String> canadianCities = new ArrayList<>();
 
+  // Validators for the list, which never changes after init
+  private String etag;
+  private long lastModified;
+
   @Override
   public void init(){
     canadianCities.add("Canmore, Alberta"); 
     canadianCities.add("St. Johns, Newfoundland"); 
     canadianCities.add("Kingston, Ontario"); 
+
+    etag = ConditionalGet.contentTag(convertToJsonUsingGson(canadianCities));
+    lastModified = System.currentTimeMillis();
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (ConditionalGet.notModified(request, response, etag, lastModified)) {
+      return;
+    }
 
     // Convert the server stats to JSON
     String json = convertToJsonUsingGson(canadianCities);
@@ -49,8 +59,7 @@ public class DataServlet extends HttpServlet {
    * Converts an arraylist into a JSON string using the Gson library. 
    */
   private String convertToJsonUsingGson(List canadianCities) {
-    Gson gson = new Gson();
-    String json = gson.toJson(canadianCities);
+    String json = Json.GSON.toJson(canadianCities);
     return json;
   }
 }
@@ -0,0 +1,50 @@
+package com.google.sps.servlets;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Reuses {@code Deflater}s across responses. Each one owns native zlib memory that is only freed by
+ * {@code end()}, so creating one per response and leaving it to the garbage collector lets native
+ * memory pile up under load.
+ */
+final class DeflaterPool {
+  // Raw deflate for gzip, which adds its own framing, and zlib-wrapped deflate for "deflate"
+  private final BlockingQueue<Deflater> rawIdle;
+  private final BlockingQueue<Deflater> zlibIdle;
+
+  DeflaterPool(int maxIdle) {
+    rawIdle = new ArrayBlockingQueue<>(maxIdle);
+    zlibIdle = new ArrayBlockingQueue<>(maxIdle);
+  }
+
+  /** Returns a deflater at {@code level}, either raw ({@code nowrap}) or zlib-wrapped. */
+  Deflater borrow(int level, boolean nowrap) {
+    Deflater deflater = (nowrap ? rawIdle : zlibIdle).poll();
+    if (deflater == null) {
+      return new Deflater(level, nowrap);
+    }
+    deflater.setLevel(level);
+    return deflater;
+  }
+
+  /** Returns {@code deflater} to the pool, or frees it if the pool is already full. */
+  void release(Deflater deflater, boolean nowrap) {
+    deflater.reset();
+    if (!(nowrap ? rawIdle : zlibIdle).offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  /** Frees every idle deflater. */
+  void clear() {
+    Deflater deflater;
+    while ((deflater = rawIdle.poll()) != null) {
+      deflater.end();
+    }
+    while ((deflater = zlibIdle.poll()) != null) {
+      deflater.end();
+    }
+  }
+}
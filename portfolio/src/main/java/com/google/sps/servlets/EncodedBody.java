@@ -0,0 +1,80 @@
+package com.google.sps.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A response body encoded once up front as UTF-8 bytes and as gzip, so serving it is a header
+ * check and a single write with no serialization or compression per request.
+ */
+final class EncodedBody {
+  private final String contentType;
+  private final byte[] identity;
+  private final byte[] gzip;
+  private final String etag;
+  private final String gzipEtag;
+
+  EncodedBody(String content, String contentType) {
+    this.contentType = contentType;
+    this.identity = content.getBytes(StandardCharsets.UTF_8);
+    this.gzip = gzip(identity);
+    this.etag = ConditionalGet.contentTag(content);
+    // Each encoding is a different representation, so it needs its own entity tag
+    this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+  }
+
+  /**
+   * Writes the body, gzipped if the client accepts it, or a 304 if the client's copy is current.
+   */
+  void serve(HttpServletRequest request, HttpServletResponse response, long lastModifiedMillis)
+      throws IOException {
+    boolean useGzip = acceptsGzip(request);
+    String variantEtag = useGzip ? gzipEtag : etag;
+    response.setHeader("Vary", "Accept-Encoding");
+    if (ConditionalGet.notModified(request, response, variantEtag, lastModifiedMillis)) {
+      return;
+    }
+
+    byte[] body = useGzip ? gzip : identity;
+    response.setContentType(contentType);
+    if (useGzip) {
+      response.setHeader("Content-Encoding", "gzip");
+    }
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  String getEtag() {
+    return etag;
+  }
+
+  static boolean acceptsGzip(HttpServletRequest request) {
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      if (parts[0].trim().equalsIgnoreCase("gzip")) {
+        // An explicit q=0 means the client refuses gzip
+        return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
+  private static byte[] gzip(byte[] content) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzipStream = new GZIPOutputStream(bytes)) {
+      gzipStream.write(content);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,153 @@
+package com.google.sps.servlets;
+
+import com.google.sps.classes.ImageVariants;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves a site image scaled down to a width, e.g. {@code /image?src=canoe.png&w=350}, so phones
+ * are not sent the full-size picture. Variants are cached on disk, in the directory named by the
+ * {@code image.cache.dir} system property or else under the temp directory.
+ *
+ * <p>A request that also carries the image's current version, {@code v}, names content that can
+ * never change and is cached by clients for a year. Without it the response must be revalidated.
+ */
+@WebServlet(urlPatterns = "/image", loadOnStartup = 1)
+public class ImageServlet extends HttpServlet {
+
+  private static final String SERVLET_ATTRIBUTE = ImageServlet.class.getName();
+  private static final String CACHE_DIR_PROPERTY = "image.cache.dir";
+
+  // Widths offered to srcset; requests for anything else are rounded up to one of these
+  private static final int[] WIDTHS = {350, 700, 1400};
+
+  // Only plain file names in the web root, so src cannot reach into WEB-INF or other directories
+  private static final Pattern SOURCE_NAME = Pattern.compile("[\\w-]+\\.(png|jpe?g)");
+
+  private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+  private final Map<String, Source> sources = new ConcurrentHashMap<>();
+  private ImageVariants variants;
+
+  @Override
+  public void init() throws ServletException {
+    String configured = System.getProperty(CACHE_DIR_PROPERTY);
+    Path directory = (configured != null)
+        ? Paths.get(configured)
+        : Paths.get(System.getProperty("java.io.tmpdir"), "portfolio-images");
+    try {
+      variants = new ImageVariants(directory, WIDTHS);
+    } catch (IOException e) {
+      throw new ServletException("Cannot create image cache directory " + directory, e);
+    }
+    getServletContext().setAttribute(SERVLET_ATTRIBUTE, this);
+  }
+
+  @Override
+  public void destroy() {
+    getServletContext().removeAttribute(SERVLET_ATTRIBUTE);
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String name = request.getParameter("src");
+    Source source = getSource(name);
+    if (source == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+
+    int width;
+    try {
+      width = variants.snapWidth(Integer.parseInt(request.getParameter("w")));
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "w must be a number");
+      return;
+    }
+
+    boolean notModified = ConditionalGet.notModified(request, response,
+        "\"" + source.hash + "-" + width + "\"", source.lastModified);
+    if (source.hash.equals(request.getParameter("v"))) {
+      response.setHeader("Cache-Control", IMMUTABLE);
+    }
+    if (notModified) {
+      return;
+    }
+
+    Path variant = variants.getVariant(source.bytes, source.hash, source.format, width);
+    response.setContentType(getServletContext().getMimeType(name));
+    response.setContentLengthLong(Files.size(variant));
+    Files.copy(variant, response.getOutputStream());
+  }
+
+  /** Returns the version to put in {@code v} for the image {@code name}, or null if unknown. */
+  String getVersion(String name) {
+    Source source = getSource(name);
+    return (source == null) ? null : source.hash;
+  }
+
+  static ImageServlet get(ServletContext context) {
+    return (ImageServlet) context.getAttribute(SERVLET_ATTRIBUTE);
+  }
+
+  private Source getSource(String name) {
+    if (name == null || !SOURCE_NAME.matcher(name).matches()) {
+      return null;
+    }
+    // The images are part of the deployment, so each is read and hashed once
+    Source source = sources.get(name);
+    if (source == null) {
+      byte[] bytes = readResource("/" + name);
+      if (bytes == null) {
+        return null;
+      }
+      source = sources.computeIfAbsent(name, key -> new Source(key, bytes));
+    }
+    return source;
+  }
+
+  private byte[] readResource(String path) {
+    try (InputStream in = getServletContext().getResourceAsStream(path)) {
+      if (in == null) {
+        return null;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static final class Source {
+    private final byte[] bytes;
+    private final String hash;
+    private final String format;
+    private final long lastModified;
+
+    private Source(String name, byte[] bytes) {
+      this.bytes = bytes;
+      this.hash = ImageVariants.hash(bytes);
+      this.format = name.substring(name.lastIndexOf('.') + 1).replace("jpeg", "jpg");
+      this.lastModified = System.currentTimeMillis();
+    }
+  }
+}
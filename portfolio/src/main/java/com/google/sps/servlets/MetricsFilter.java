@@ -0,0 +1,155 @@
+package com.google.sps.servlets;
+
+import com.google.sps.classes.RequestMetrics;
+import java.io.IOException;
+import java.io.PrintWriter;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Records the latency, status code and body size of every request to the app's servlets. Mapped
+ * first in web.xml, so the time includes the other filters.
+ */
+public class MetricsFilter implements Filter {
+
+  private static final String METRICS_ATTRIBUTE = RequestMetrics.class.getName();
+
+  private final RequestMetrics metrics = new RequestMetrics();
+  private ServletContext context;
+
+  @Override
+  public void init(FilterConfig config) {
+    context = config.getServletContext();
+    context.setAttribute(METRICS_ATTRIBUTE, metrics);
+  }
+
+  @Override
+  public void destroy() {
+    context.removeAttribute(METRICS_ATTRIBUTE);
+  }
+
+  @Override
+  public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+      FilterChain chain) throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) servletRequest;
+    HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+    CountingResponse counting = new CountingResponse(response);
+    long start = System.nanoTime();
+    try {
+      chain.doFilter(request, counting);
+    } finally {
+      metrics.record(request.getServletPath(), System.nanoTime() - start, response.getStatus(),
+          counting.bytes);
+    }
+  }
+
+  static RequestMetrics getMetrics(ServletContext context) {
+    return (RequestMetrics) context.getAttribute(METRICS_ATTRIBUTE);
+  }
+
+  /** Counts the body bytes written through the response. */
+  private static final class CountingResponse extends HttpServletResponseWrapper {
+    private long bytes;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    private CountingResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        ServletOutputStream wrapped = super.getOutputStream();
+        outputStream = new ServletOutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            wrapped.write(b);
+            bytes++;
+          }
+
+          @Override
+          public void write(byte[] data, int offset, int length) throws IOException {
+            wrapped.write(data, offset, length);
+            bytes += length;
+          }
+
+          @Override
+          public void flush() throws IOException {
+            wrapped.flush();
+          }
+
+          @Override
+          public boolean isReady() {
+            return wrapped.isReady();
+          }
+
+          @Override
+          public void setWriteListener(WriteListener listener) {
+            wrapped.setWriteListener(listener);
+          }
+        };
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        // Wrap the response's own writer, so using it never switches the response to stream mode
+        writer = new PrintWriter(super.getWriter()) {
+          @Override
+          public void write(int c) {
+            super.write(c);
+            bytes += utf8Length(c);
+          }
+
+          @Override
+          public void write(char[] chars, int offset, int length) {
+            super.write(chars, offset, length);
+            for (int i = offset; i < offset + length; i++) {
+              bytes += utf8Length(chars[i]);
+            }
+          }
+
+          @Override
+          public void write(String string, int offset, int length) {
+            super.write(string, offset, length);
+            for (int i = offset; i < offset + length; i++) {
+              bytes += utf8Length(string.charAt(i));
+            }
+          }
+
+          @Override
+          public void println() {
+            // PrintWriter writes the line separator straight to the wrapped writer otherwise
+            write(System.lineSeparator());
+          }
+        };
+      }
+      return writer;
+    }
+
+    /** Returns the UTF-8 size of one UTF-16 char, counting each half of a surrogate pair as 2. */
+    private static int utf8Length(int c) {
+      if (c < 0x80) {
+        return 1;
+      }
+      if (c < 0x800 || Character.isSurrogate((char) c)) {
+        return 2;
+      }
+      return 3;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.google.sps.servlets;
+
+import com.google.sps.classes.RequestMetrics;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Returns the request metrics and cache statistics in the Prometheus text format. */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    StringBuilder out = new StringBuilder();
+
+    RequestMetrics metrics = MetricsFilter.getMetrics(getServletContext());
+    if (metrics != null) {
+      metrics.writePrometheus(out);
+    }
+
+    ResponseCacheFilter responseCache = ResponseCacheFilter.get(getServletContext());
+    if (responseCache != null) {
+      out.append("# HELP response_cache_hit_ratio Fraction of cacheable GETs served from memory.\n");
+      out.append("# TYPE response_cache_hit_ratio gauge\n");
+      out.append("response_cache_hit_ratio ").append(responseCache.getHitRatio()).append('\n');
+      out.append("# HELP response_cache_bytes Approximate memory held by cached responses.\n");
+      out.append("# TYPE response_cache_bytes gauge\n");
+      out.append("response_cache_bytes ").append(responseCache.getFootprintBytes()).append('\n');
+    }
+
+    response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+    response.getWriter().print(out);
+  }
+}
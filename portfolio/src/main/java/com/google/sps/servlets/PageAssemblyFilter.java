@@ -0,0 +1,118 @@
+package com.google.sps.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the site's pages with navbar.html and footer.html already inside their empty
+ * {@code <header>} and {@code <footer>} elements, so a page arrives complete in one response
+ * instead of needing two more fetches from script.js. Each page is stitched together on its first
+ * request and then served from memory, pre-encoded and with a content-hash ETag.
+ *
+ * <p>Image variant links in the page are stamped with the image's current version, which lets
+ * browsers cache those variants without ever revalidating them.
+ */
+@WebFilter(urlPatterns = {"/", "/index.html", "/background.html", "/blogposts.html",
+    "/projects.html", "/public-transit.html"})
+public class PageAssemblyFilter implements Filter {
+
+  private static final String HEADER_PLACEHOLDER = "<header></header>";
+  private static final String FOOTER_PLACEHOLDER = "<footer></footer>";
+
+  // An ImageServlet link, e.g. image?src=canoe.png&amp;w=350, as written in a srcset
+  private static final Pattern IMAGE_LINK = Pattern.compile("image\\?src=([\\w.-]+)&amp;");
+
+  private final Map<String, EncodedBody> pages = new ConcurrentHashMap<>();
+  private ServletContext context;
+  private long lastModified;
+
+  @Override
+  public void init(FilterConfig config) {
+    context = config.getServletContext();
+    lastModified = System.currentTimeMillis();
+  }
+
+  @Override
+  public void destroy() {}
+
+  @Override
+  public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+      FilterChain chain) throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) servletRequest;
+    HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+    String path = request.getServletPath();
+    if (path.isEmpty() || path.equals("/")) {
+      path = "/index.html";
+    }
+
+    EncodedBody page = pages.computeIfAbsent(path, this::assemble);
+    if (page == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+    page.serve(request, response, lastModified);
+  }
+
+  /** Returns the page with its includes filled in, or null if there is no such page. */
+  private EncodedBody assemble(String path) {
+    String html = readResource(path);
+    if (html == null) {
+      return null;
+    }
+    html = html.replace(HEADER_PLACEHOLDER,
+        "<header>" + readResource("/navbar.html") + "</header>");
+    html = html.replace(FOOTER_PLACEHOLDER,
+        "<footer>" + readResource("/footer.html") + "</footer>");
+    return new EncodedBody(addImageVersions(html), "text/html;charset=UTF-8");
+  }
+
+  private String addImageVersions(String html) {
+    ImageServlet images = ImageServlet.get(context);
+    if (images == null) {
+      return html;
+    }
+    Matcher link = IMAGE_LINK.matcher(html);
+    StringBuffer versioned = new StringBuffer();
+    while (link.find()) {
+      String version = images.getVersion(link.group(1));
+      String replacement = (version == null) ? link.group() : link.group() + "v=" + version + "&amp;";
+      link.appendReplacement(versioned, Matcher.quoteReplacement(replacement));
+    }
+    return link.appendTail(versioned).toString();
+  }
+
+  private String readResource(String path) {
+    try (InputStream in = context.getResourceAsStream(path)) {
+      if (in == null) {
+        return null;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,435 @@
+package com.google.sps.servlets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Caches the full responses of idempotent GET endpoints in memory for a short time, so repeated
+ * requests are answered without running the servlet. Entries expire after {@code ttlSeconds} and
+ * the least recently used ones are evicted once the cache holds more than {@code maxBytes}.
+ * Servlets that change the data behind a cached endpoint call {@link #invalidate}.
+ *
+ * <p>Conditional requests are answered from the cache too, by checking the cached response's
+ * {@code ETag} and {@code Last-Modified} and replying 304 Not Modified when the client is current.
+ * It is mapped in web.xml after {@code CompressionFilter}, so it stores uncompressed bodies.
+ */
+public class ResponseCacheFilter implements Filter {
+
+  private static final String FILTER_ATTRIBUTE = ResponseCacheFilter.class.getName();
+
+  // Rough per-entry bookkeeping cost on top of the key, headers and body
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private long ttlMillis;
+  private long maxBytes;
+  private ServletContext context;
+
+  // Access-ordered, so iteration starts at the least recently used entry
+  private final LinkedHashMap<String, CachedResponse> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private long footprintBytes;
+  // Bumped by every invalidation, so a response rendered before one is never stored after it
+  private long generation;
+  private long hits;
+  private long misses;
+
+  @Override
+  public void init(FilterConfig config) {
+    ttlMillis = Long.parseLong(config.getInitParameter("ttlSeconds")) * 1000;
+    maxBytes = Long.parseLong(config.getInitParameter("maxBytes"));
+    context = config.getServletContext();
+    context.setAttribute(FILTER_ATTRIBUTE, this);
+  }
+
+  @Override
+  public void destroy() {
+    context.removeAttribute(FILTER_ATTRIBUTE);
+  }
+
+  @Override
+  public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+      FilterChain chain) throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) servletRequest;
+    HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+    if (!request.getMethod().equals("GET")) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    String key = cacheKey(request);
+    CachedResponse cached = lookup(key);
+    if (cached == null) {
+      long renderedGeneration = getGeneration();
+      // The servlet renders the full body, so a revalidating client still fills the cache
+      CapturingResponse capture = new CapturingResponse(response);
+      chain.doFilter(new UnconditionalRequest(request), capture);
+      cached = capture.finish(System.currentTimeMillis() + ttlMillis);
+      if (capture.status == HttpServletResponse.SC_OK) {
+        store(key, cached, renderedGeneration);
+      }
+    }
+
+    if (cached.status == HttpServletResponse.SC_OK && cached.isCurrent(request)) {
+      cached.replayNotModified(response);
+    } else {
+      cached.replay(response);
+    }
+  }
+
+  /** Drops every cached response whose path starts with {@code pathPrefix}. */
+  public synchronized void invalidate(String pathPrefix) {
+    generation++;
+    Iterator<Map.Entry<String, CachedResponse>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, CachedResponse> entry = iterator.next();
+      if (entry.getKey().startsWith(pathPrefix)) {
+        footprintBytes -= entry.getValue().footprint;
+        iterator.remove();
+      }
+    }
+  }
+
+  /** Invalidates {@code pathPrefix} in the context's cache filter, if it is running. */
+  static void invalidate(ServletContext context, String pathPrefix) {
+    ResponseCacheFilter filter = get(context);
+    if (filter != null) {
+      filter.invalidate(pathPrefix);
+    }
+  }
+
+  /** Returns the context's cache filter, or null if it isn't running. */
+  static ResponseCacheFilter get(ServletContext context) {
+    return (ResponseCacheFilter) context.getAttribute(FILTER_ATTRIBUTE);
+  }
+
+  /** Returns the fraction of cacheable requests answered from the cache. */
+  public synchronized double getHitRatio() {
+    long total = hits + misses;
+    return (total == 0) ? 0 : (double) hits / total;
+  }
+
+  /** Returns the approximate number of bytes held by cached responses. */
+  public synchronized long getFootprintBytes() {
+    return footprintBytes;
+  }
+
+  private synchronized CachedResponse lookup(String key) {
+    CachedResponse cached = entries.get(key);
+    if (cached != null && cached.expiresAtMillis <= System.currentTimeMillis()) {
+      entries.remove(key);
+      footprintBytes -= cached.footprint;
+      cached = null;
+    }
+    if (cached == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return cached;
+  }
+
+  private synchronized long getGeneration() {
+    return generation;
+  }
+
+  /** Stores {@code response} unless an invalidation happened since it started rendering. */
+  private synchronized void store(String key, CachedResponse response, long renderedGeneration) {
+    if (renderedGeneration != generation) {
+      return;
+    }
+    response.footprint = ENTRY_OVERHEAD_BYTES + 2 * key.length() + response.size();
+    if (response.footprint > maxBytes) {
+      return;
+    }
+
+    CachedResponse previous = entries.put(key, response);
+    if (previous != null) {
+      footprintBytes -= previous.footprint;
+    }
+    footprintBytes += response.footprint;
+
+    Iterator<CachedResponse> leastRecentlyUsed = entries.values().iterator();
+    while (footprintBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+      footprintBytes -= leastRecentlyUsed.next().footprint;
+      leastRecentlyUsed.remove();
+    }
+  }
+
+  private static String cacheKey(HttpServletRequest request) {
+    // Keyed by servlet path so invalidation prefixes don't depend on the context path
+    String key = request.getServletPath();
+    if (request.getQueryString() != null) {
+      key += "?" + request.getQueryString();
+    }
+    // Responses vary on Accept-Encoding, so each value gets its own entry
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    return (acceptEncoding == null) ? key : key + " " + acceptEncoding;
+  }
+
+  /** A complete response that can be written out again. */
+  private static final class CachedResponse {
+    // Headers a 304 repeats from the full response, per RFC 7232 section 4.1
+    private static final String[] NOT_MODIFIED_HEADERS =
+        {"Cache-Control", "Content-Location", "Date", "ETag", "Expires", "Last-Modified", "Vary"};
+
+    private final int status;
+    private final String contentType;
+    private final List<String[]> headers;
+    private final byte[] body;
+    private final long expiresAtMillis;
+    private long footprint;
+
+    private CachedResponse(int status, String contentType, List<String[]> headers, byte[] body,
+        long expiresAtMillis) {
+      this.status = status;
+      this.contentType = contentType;
+      this.headers = headers;
+      this.body = body;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    private int size() {
+      int size = body.length;
+      for (String[] header : headers) {
+        size += 2 * (header[0].length() + header[1].length());
+      }
+      return size;
+    }
+
+    /** Returns true if the client's validators match this response's. */
+    private boolean isCurrent(HttpServletRequest request) {
+      String etag = getHeader("ETag");
+      long lastModified = ConditionalGet.parseDate(getHeader("Last-Modified"));
+      return (etag != null || lastModified != -1)
+          && ConditionalGet.isCurrent(request, etag, lastModified);
+    }
+
+    /** Sends 304 Not Modified with the headers that describe the cached representation. */
+    private void replayNotModified(HttpServletResponse response) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      for (String[] header : headers) {
+        for (String name : NOT_MODIFIED_HEADERS) {
+          if (header[0].equalsIgnoreCase(name)) {
+            response.addHeader(header[0], header[1]);
+          }
+        }
+      }
+    }
+
+    private String getHeader(String name) {
+      for (String[] header : headers) {
+        if (header[0].equalsIgnoreCase(name)) {
+          return header[1];
+        }
+      }
+      return null;
+    }
+
+    private void replay(HttpServletResponse response) throws IOException {
+      response.setStatus(status);
+      if (contentType != null) {
+        response.setContentType(contentType);
+      }
+      for (String[] header : headers) {
+        response.addHeader(header[0], header[1]);
+      }
+      response.setContentLength(body.length);
+      response.getOutputStream().write(body);
+    }
+  }
+
+  /** Hides the client's validators, so the servlet always renders the full response. */
+  private static final class UnconditionalRequest extends HttpServletRequestWrapper {
+    private UnconditionalRequest(HttpServletRequest request) {
+      super(request);
+    }
+
+    @Override
+    public String getHeader(String name) {
+      return isValidator(name) ? null : super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      return isValidator(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+      return isValidator(name) ? -1 : super.getDateHeader(name);
+    }
+
+    private static boolean isValidator(String name) {
+      return name.equalsIgnoreCase("If-None-Match") || name.equalsIgnoreCase("If-Modified-Since");
+    }
+  }
+
+  /** Records everything a servlet writes instead of sending it. */
+  private static final class CapturingResponse extends HttpServletResponseWrapper {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final List<String[]> headers = new ArrayList<>();
+    private int status = HttpServletResponse.SC_OK;
+    private String contentType;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    private CapturingResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public void setStatus(int status) {
+      this.status = status;
+    }
+
+    @Override
+    public void sendError(int status) {
+      this.status = status;
+    }
+
+    @Override
+    public void sendError(int status, String message) {
+      this.status = status;
+    }
+
+    @Override
+    public void setContentType(String type) {
+      // The wrapped response works out the charset, which the writer below needs
+      super.setContentType(type);
+      this.contentType = super.getContentType();
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      headers.removeIf(header -> header[0].equalsIgnoreCase(name));
+      headers.add(new String[] {name, value});
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      headers.add(new String[] {name, value});
+    }
+
+    @Override
+    public String getHeader(String name) {
+      for (String[] header : headers) {
+        if (header[0].equalsIgnoreCase(name)) {
+          return header[1];
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+      return getHeader(name) != null;
+    }
+
+    @Override
+    public int getStatus() {
+      return status;
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+      setHeader(name, ConditionalGet.formatDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+      addHeader(name, ConditionalGet.formatDate(date));
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+      setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+      addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setContentLength(int length) {
+      // Replay sets the length from the captured body.
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+      // Replay sets the length from the captured body.
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      if (outputStream == null) {
+        outputStream = new ServletOutputStream() {
+          @Override
+          public void write(int b) {
+            body.write(b);
+          }
+
+          @Override
+          public void write(byte[] bytes, int offset, int length) {
+            body.write(bytes, offset, length);
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setWriteListener(WriteListener listener) {
+            // The filter is not async-supported, so per the servlet spec there can be no listener
+            throw new IllegalStateException("Cached responses are written synchronously");
+          }
+        };
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        writer = new PrintWriter(new OutputStreamWriter(body, getCharacterEncoding()));
+      }
+      return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+      if (writer != null) {
+        writer.flush();
+      }
+    }
+
+    private CachedResponse finish(long expiresAtMillis) {
+      flushBuffer();
+      return new CachedResponse(status, contentType, headers, body.toByteArray(), expiresAtMillis);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.google.sps.servlets;
+
+import com.google.sps.classes.Comment;
+import com.google.sps.classes.Json;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Returns the comments that best match a search query as a JSON list, best match first. */
+@WebServlet("/search-comments")
+public class SearchCommentsServlet extends HttpServlet {
+
+  private static final int DEFAULT_RESULTS = 10;
+  private static final int MAX_RESULTS = 100;
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String query = request.getParameter("q");
+    query = (query == null) ? "" : query;
+
+    List<Comment> results =
+        CommentSearchIndexLoader.getIndex(getServletContext()).search(query, getNumResults(request));
+
+    response.setContentType("application/json;");
+    Json.GSON.toJson(results, response.getWriter());
+  }
+
+  private static int getNumResults(HttpServletRequest request) {
+    String resultsString = request.getParameter("k");
+    if (resultsString == null) {
+      return DEFAULT_RESULTS;
+    }
+
+    int numResults = Integer.parseInt(resultsString);
+
+    if (numResults < 1 || numResults > MAX_RESULTS) {
+      throw new IllegalArgumentException("Number of results is out of range: " + numResults);
+    }
+
+    return numResults;
+  }
+}
@@ -14,42 +14,253 @@
 
 package com.google.sps.servlets;
 
-import com.google.gson.Gson;
+import com.google.sps.classes.AccessibilityIndex;
+import com.google.sps.classes.AccessibilityIndex.Order;
+import com.google.sps.classes.CsvTable;
+import com.google.sps.classes.CsvTable.ColumnType;
+import com.google.sps.classes.Json;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.Scanner;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Returns data from csv file on the percentage of accessible public transit sites in provinces as a JSON object, e.g. {"Ontario": 84} */
+/**
+ * Returns data from csv file on the percentage of accessible public transit sites in provinces as a JSON object, e.g. {"Ontario": 84}
+ *
+ * <p>By default the data is read once from the bundled /WEB-INF csv file. If the
+ * {@code transit.data.dir} system property names a directory, every csv file in it is read instead.
+ * The directory is checked again at most every few seconds, on the next request, so edited files
+ * are picked up without a redeploy or a background thread.
+ *
+ * <p>The response can be narrowed with {@code minPercentage}, {@code maxPercentage}, a
+ * case-insensitive {@code province} prefix, a {@code sort} order ({@code percentage},
+ * {@code -percentage} or {@code name}; file order by default) and a {@code limit} on the number of
+ * provinces returned.
+ */
 @WebServlet("/transit-data")
 public class TransitDataServlet extends HttpServlet {
 
-  private LinkedHashMap<String, Integer> accessibilityRating = new LinkedHashMap<>();
+  private static final Logger logger = Logger.getLogger(TransitDataServlet.class.getName());
 
-  @Override
-  public void init() {
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream("/WEB-INF/transit-accessibility-data.csv"));
-    
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      String[] cells = line.split(",");
+  private static final String DATA_DIR_PROPERTY = "transit.data.dir";
+
+  // How long a request may go without checking the data directory for changes
+  private static final long CHECK_INTERVAL_MILLIS = 5000;
+
+  // Each row is a province and the percentage of its stations that are accessible
+  private static final ColumnType[] COLUMNS = {ColumnType.STRING, ColumnType.INT};
 
-      String province = String.valueOf(cells[0]);
-      Integer percentage = Integer.valueOf(cells[1]);
+  // Readers always see a complete snapshot; reloads build a new one and swap it in
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+  private Path directory;
+  // When the directory was last checked, and the names, sizes and times of its files at that point
+  private final AtomicLong lastCheckMillis = new AtomicLong();
+  private volatile String directoryState;
+
+  @Override
+  public void init() throws ServletException {
+    String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+    if (dataDir == null) {
+      String resource = "/WEB-INF/transit-accessibility-data.csv";
+      try (InputStream csv = getServletContext().getResourceAsStream(resource)) {
+        snapshot.set(new Snapshot(toRatings(CsvTable.read(csv, COLUMNS))));
+      } catch (IOException e) {
+        throw new ServletException("Cannot read " + resource, e);
+      }
+      return;
+    }
 
-      accessibilityRating.put(province, percentage);
+    directory = Paths.get(dataDir);
+    try {
+      directoryState = describe(directory);
+      snapshot.set(load(directory, true));
+    } catch (IOException | RuntimeException e) {
+      throw new ServletException("Cannot read transit data from " + directory, e);
     }
-    scanner.close();
+    lastCheckMillis.set(System.currentTimeMillis());
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    reloadIfDue();
+
+    Snapshot current = snapshot.get();
+    if (request.getQueryString() == null) {
+      current.body.serve(request, response, current.lastModified);
+      return;
+    }
+
+    // A slice is validated by the dataset version together with the query that selected it
+    String etag = ConditionalGet.contentTag(current.body.getEtag() + request.getQueryString());
+    if (ConditionalGet.notModified(request, response, etag, current.lastModified)) {
+      return;
+    }
+
+    int minPercentage = getIntParameter(request, "minPercentage", Integer.MIN_VALUE);
+    int maxPercentage = getIntParameter(request, "maxPercentage", Integer.MAX_VALUE);
+    int limit = getIntParameter(request, "limit", Integer.MAX_VALUE);
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limit is out of range: " + limit);
+    }
+
+    AccessibilityIndex index = current.index;
+    int[] rows = index.query(minPercentage, maxPercentage, request.getParameter("province"),
+        getOrder(request), limit);
+
+    LinkedHashMap<String, Integer> slice = new LinkedHashMap<>();
+    for (int row : rows) {
+      slice.put(index.getProvince(row), index.getPercentage(row));
+    }
+
     response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(accessibilityRating);
-    response.getWriter().println(json);
+    Json.GSON.toJson(slice, response.getWriter());
+  }
+
+  private static int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+    String value = request.getParameter(name);
+    return (value == null || value.isEmpty()) ? defaultValue : Integer.parseInt(value);
+  }
+
+  private static Order getOrder(HttpServletRequest request) {
+    String sort = request.getParameter("sort");
+    if (sort == null || sort.isEmpty()) {
+      return Order.ROW;
+    }
+    switch (sort) {
+      case "percentage":
+        return Order.PERCENTAGE_ASCENDING;
+      case "-percentage":
+        return Order.PERCENTAGE_DESCENDING;
+      case "name":
+        return Order.NAME;
+      default:
+        throw new IllegalArgumentException("Unknown sort order: " + sort);
+    }
+  }
+
+  /**
+   * Re-reads the data directory if it has changed since it was last checked, which happens at most
+   * once per {@code CHECK_INTERVAL_MILLIS} and by only one request at a time.
+   */
+  private void reloadIfDue() {
+    if (directory == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long lastCheck = lastCheckMillis.get();
+    if (now - lastCheck < CHECK_INTERVAL_MILLIS || !lastCheckMillis.compareAndSet(lastCheck, now)) {
+      return;
+    }
+
+    try {
+      String state = describe(directory);
+      if (state.equals(directoryState)) {
+        return;
+      }
+      Snapshot loaded = load(directory, false);
+      directoryState = state;
+      // Compare the encoded content, so an edit that only reorders rows still counts as a change
+      if (!loaded.body.getEtag().equals(snapshot.get().body.getEtag())) {
+        snapshot.set(loaded);
+        ResponseCacheFilter.invalidate(getServletContext(), "/transit-data");
+      }
+    } catch (IOException | RuntimeException e) {
+      // Keep serving the last good data rather than a half-written file, and try again next time
+      logger.log(Level.WARNING, "Failed to reload transit data from " + directory, e);
+    }
+  }
+
+  /**
+   * Parses every csv file in {@code directory} into a new snapshot. The files are memory-mapped if
+   * {@code mapFiles} is set and otherwise copied onto the heap first. A reload can't map them: the
+   * file that triggered it may still be being rewritten, and a mapped file that shrinks while it is
+   * parsed fails with an {@code InternalError} instead of an {@code IOException}.
+   */
+  private static Snapshot load(Path directory, boolean mapFiles) throws IOException {
+    LinkedHashMap<String, Integer> accessibilityRating = new LinkedHashMap<>();
+    for (Path file : listCsvFiles(directory)) {
+      if (mapFiles) {
+        accessibilityRating.putAll(toRatings(CsvTable.map(file, COLUMNS)));
+      } else {
+        try (InputStream csv = Files.newInputStream(file)) {
+          accessibilityRating.putAll(toRatings(CsvTable.read(csv, COLUMNS)));
+        }
+      }
+    }
+    return new Snapshot(accessibilityRating);
+  }
+
+  /** Returns the name, size and modification time of every csv file in {@code directory}. */
+  private static String describe(Path directory) throws IOException {
+    StringBuilder state = new StringBuilder();
+    for (Path file : listCsvFiles(directory)) {
+      state.append(file.getFileName()).append(' ').append(Files.size(file)).append(' ')
+          .append(Files.getLastModifiedTime(file).toMillis()).append('\n');
+    }
+    return state.toString();
+  }
+
+  private static List<Path> listCsvFiles(Path directory) throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.csv")) {
+      for (Path file : stream) {
+        files.add(file);
+      }
+    }
+    // Read files in a fixed order so later files consistently override earlier ones
+    Collections.sort(files);
+    return files;
+  }
+
+  private static LinkedHashMap<String, Integer> toRatings(CsvTable table) {
+    LinkedHashMap<String, Integer> accessibilityRating = new LinkedHashMap<>();
+    String[] provinces = table.stringColumn(0);
+    int[] percentages = table.intColumn(1);
+    for (int row = 0; row < table.rowCount(); row++) {
+      accessibilityRating.put(provinces[row], percentages[row]);
+    }
+    return accessibilityRating;
+  }
+
+  private static AccessibilityIndex buildIndex(Map<String, Integer> accessibilityRating) {
+    String[] provinces = new String[accessibilityRating.size()];
+    int[] percentages = new int[accessibilityRating.size()];
+    int row = 0;
+    for (Map.Entry<String, Integer> entry : accessibilityRating.entrySet()) {
+      provinces[row] = entry.getKey();
+      percentages[row] = entry.getValue();
+      row++;
+    }
+    return new AccessibilityIndex(provinces, percentages);
+  }
+
+  /** An immutable version of the dataset together with its pre-encoded response. */
+  private static final class Snapshot {
+    private final AccessibilityIndex index;
+    private final EncodedBody body;
+    private final long lastModified;
+
+    private Snapshot(LinkedHashMap<String, Integer> accessibilityRating) {
+      this.index = buildIndex(accessibilityRating);
+      this.body = new EncodedBody(Json.GSON.toJson(accessibilityRating), "application/json");
+      this.lastModified = System.currentTimeMillis();
+    }
   }
 }
@@ -28,26 +28,26 @@ function addRandomFact() {
 }
 
 /**
- * Inserts a navigation bar.
+ * Inserts the navigation bar and footer, unless the server already included them in the page.
  */
-fetch("navbar.html")
+document.addEventListener("DOMContentLoaded", () => {
+  insertInclude("header", "navbar.html");
+  insertInclude("footer", "footer.html");
+});
+
+function insertInclude(selector, url) {
+  const element = document.querySelector(selector);
+  if (element === null || element.innerHTML.trim() !== "") {
+    return;
+  }
+  fetch(url)
                 .then(response => {
                     return response.text();
                 })
                 .then(data => {
-                    document.querySelector("header").innerHTML = data;
-                });
-
-/**
- * Inserts a footer.
- */
-fetch("footer.html")
-                .then(response => {
-                    return response.text();
-                })
-                .then(data => {
-                    document.querySelector("footer").innerHTML = data;
+                    element.innerHTML = data;
                 });
+}
 
 /**
  * Inserts a list of my favourite cities.
@@ -76,21 +76,67 @@ function createListElement(text) {
  * Builds the comments UI.
  */
 
+// Cursor returned by the server for the page after the last one displayed
+let nextCommentsCursor = null;
+// Time of the newest comment displayed, or null before any are
+let newestCommentTime = null;
+
 // Function called by blogposts.html's body onload 
 function displayComments() {
   let commentsQuantity = document.getElementById('commentsQuantity').value;
-  fetch("/add-comment?commentsQuantity="+commentsQuantity).then(response => response.json()).then((comments) => {
+  fetch("/add-comment?commentsQuantity="+commentsQuantity).then(response => response.json()).then((page) => {
       const commentContainer = document.getElementById('comments-container');
       commentContainer.innerHTML = "";
-      comments.forEach((comment) => {
-        commentContainer.appendChild(createComment(comment))
-      });
+      newestCommentTime = page.comments.length > 0 ? page.comments[0].time : 0;
+      appendComments(page);
     });
 }
 
+// Fetches the next page of comments, resuming where the last page stopped
+function displayMoreComments() {
+  if (nextCommentsCursor === null) {
+    return;
+  }
+  let commentsQuantity = document.getElementById('commentsQuantity').value;
+  fetch("/add-comment?commentsQuantity="+commentsQuantity+"&cursor="+encodeURIComponent(nextCommentsCursor))
+    .then(response => response.json()).then((page) => {
+      appendComments(page);
+    });
+}
+
+function appendComments(page) {
+  const commentContainer = document.getElementById('comments-container');
+  page.comments.forEach((comment) => {
+    commentContainer.appendChild(createComment(comment))
+  });
+  nextCommentsCursor = page.comments.length > 0 ? page.cursor : null;
+}
+
+// Function called by blogposts.html's body onload, adds new comments to the top as they are posted.
+// The first page is revalidated with its ETag, so a poll with nothing new costs a 304.
+function pollForNewComments() {
+  setInterval(() => {
+    if (newestCommentTime === null) {
+      return;
+    }
+    let commentsQuantity = document.getElementById('commentsQuantity').value;
+    fetch("/add-comment?commentsQuantity="+commentsQuantity, {cache: "no-cache"})
+      .then(response => response.json()).then((page) => {
+        const commentContainer = document.getElementById('comments-container');
+        const newComments = page.comments.filter((comment) => comment.time > newestCommentTime);
+        newComments.reverse().forEach((comment) => {
+          commentContainer.insertBefore(createComment(comment), commentContainer.firstChild);
+        });
+        if (newComments.length > 0) {
+          newestCommentTime = page.comments[0].time;
+        }
+      });
+  }, 30000);
+}
+
 function createComment(comment) {
   const nameElement = createHTML('h4', comment.name);
-  const timeElement = createHTML('h5', comment.time);
+  const timeElement = createHTML('h5', new Date(comment.time).toLocaleString());
 
   let headerHTML = document.createElement('div');
   headerHTML.className = "comment-heading";
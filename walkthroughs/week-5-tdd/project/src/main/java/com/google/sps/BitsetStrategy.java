@@ -0,0 +1,159 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps one bit per minute of the day for each attendee, set where they are busy. A query ORs
+ * together the bitmaps of the requested attendees and reads the free runs off the result a word at
+ * a time, so once the bitmaps are built its cost depends on the number of attendees rather than
+ * the number of events.
+ *
+ * <p>The bitmaps are built once, from the events given to the constructor, and queries must pass
+ * that same collection. It must not change afterwards; make a new strategy for new events.
+ */
+public final class BitsetStrategy implements SchedulingStrategy {
+  private static final int DAY = TimeRange.WHOLE_DAY.duration();
+  private static final int WORDS = (DAY + Long.SIZE - 1) / Long.SIZE;
+
+  private final Collection<Event> events;
+  private final int eventCount;
+  private final Map<String, long[]> busyByAttendee = new HashMap<>();
+
+  public BitsetStrategy(Collection<Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null");
+    }
+    this.events = events;
+    this.eventCount = events.size();
+    for (Event event : events) {
+      int start = Math.max(event.getWhen().start(), 0);
+      int end = Math.min(event.getWhen().end(), DAY);
+      for (String attendee : event.getAttendees()) {
+        setRange(busyByAttendee.computeIfAbsent(attendee, key -> new long[WORDS]), start, end);
+      }
+    }
+  }
+
+  @Override
+  public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    long duration = request.getDuration();
+    if (duration > DAY) {
+      return Collections.emptyList();
+    }
+
+    // The size check is a cheap guard against the collection having been changed in place
+    if (events != this.events || events.size() != eventCount) {
+      throw new IllegalArgumentException(
+          "BitsetStrategy only answers for the events it was built from");
+    }
+    Map<String, long[]> busy = busyByAttendee;
+    long[] requiredBusy = new long[WORDS];
+    for (String attendee : request.getAttendees()) {
+      or(requiredBusy, busy.get(attendee));
+    }
+
+    if (!request.getOptionalAttendees().isEmpty()) {
+      long[] everyoneBusy = requiredBusy.clone();
+      for (String attendee : request.getOptionalAttendees()) {
+        or(everyoneBusy, busy.get(attendee));
+      }
+      List<TimeRange> everyoneFree = freeRanges(everyoneBusy, duration);
+      if (!everyoneFree.isEmpty() || request.getAttendees().isEmpty()) {
+        return everyoneFree;
+      }
+    }
+    return freeRanges(requiredBusy, duration);
+  }
+
+  /** Returns the runs of clear bits that are at least {@code duration} minutes long. */
+  static List<TimeRange> freeRanges(long[] busy, long duration) {
+    List<TimeRange> free = new ArrayList<>();
+    int minute = nextClearBit(busy, 0);
+    while (minute < DAY) {
+      int end = nextSetBit(busy, minute);
+      if (end - minute >= duration) {
+        free.add(TimeRange.fromStartEnd(minute, end, false));
+      }
+      minute = nextClearBit(busy, end);
+    }
+    return free;
+  }
+
+  /** Sets the bits for minutes {@code start} (inclusive) to {@code end} (exclusive). */
+  static void setRange(long[] bits, int start, int end) {
+    if (start >= end) {
+      return;
+    }
+    int first = start >>> 6;
+    int last = (end - 1) >>> 6;
+    // Shifts only use the low six bits, so these are the masks within the first and last words
+    long firstMask = -1L << start;
+    long lastMask = -1L >>> -end;
+    if (first == last) {
+      bits[first] |= firstMask & lastMask;
+      return;
+    }
+    bits[first] |= firstMask;
+    for (int i = first + 1; i < last; i++) {
+      bits[i] = -1L;
+    }
+    bits[last] |= lastMask;
+  }
+
+  private static void or(long[] target, long[] bits) {
+    if (bits == null) {
+      return;
+    }
+    for (int i = 0; i < WORDS; i++) {
+      target[i] |= bits[i];
+    }
+  }
+
+  /** Returns the first busy minute at or after {@code from}, or the end of the day. */
+  private static int nextSetBit(long[] bits, int from) {
+    int i = from >>> 6;
+    long word = bits[i] & (-1L << from);
+    while (word == 0) {
+      if (++i == WORDS) {
+        return DAY;
+      }
+      word = bits[i];
+    }
+    return Math.min(i * Long.SIZE + Long.numberOfTrailingZeros(word), DAY);
+  }
+
+  /** Returns the first free minute at or after {@code from}, or the end of the day. */
+  private static int nextClearBit(long[] bits, int from) {
+    if (from >= DAY) {
+      return DAY;
+    }
+    int i = from >>> 6;
+    long word = ~bits[i] & (-1L << from);
+    while (word == 0) {
+      if (++i == WORDS) {
+        return DAY;
+      }
+      word = ~bits[i];
+    }
+    return Math.min(i * Long.SIZE + Long.numberOfTrailingZeros(word), DAY);
+  }
+}
@@ -0,0 +1,177 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps each attendee to the times they are busy, stored as a sorted array of merged, half-open
+ * ranges {@code [start0, end0, start1, end1, ...]}. Scheduling can then look at just the people in
+ * a request instead of every event in the calendar.
+ *
+ * <p>Lookups are lock-free: every change replaces an attendee's array rather than editing it, so a
+ * reader always sees a complete array. The index also keeps the events it holds, as an immutable
+ * list that each change replaces, so callers can tell which events an answer is for.
+ */
+public final class BusyIntervalIndex {
+  private static final int[] NOT_BUSY = new int[0];
+
+  // The ranges each attendee was added with, needed to rebuild their busy times after a removal
+  private final Map<String, List<TimeRange>> rangesByAttendee = new ConcurrentHashMap<>();
+  private final Map<String, int[]> busyByAttendee = new ConcurrentHashMap<>();
+  private volatile List<Event> events = Collections.emptyList();
+
+  public BusyIntervalIndex() {}
+
+  public BusyIntervalIndex(Collection<Event> events) {
+    for (Event event : events) {
+      addRanges(event);
+    }
+    this.events = Collections.unmodifiableList(new ArrayList<>(events));
+  }
+
+  /**
+   * Returns the events in the index. The list never changes; adding or removing an event makes a
+   * new one, so two calls return the same list exactly when nothing changed in between.
+   */
+  public List<Event> getEvents() {
+    return events;
+  }
+
+  /** Adds {@code event}, marking its attendees busy for its duration. */
+  public synchronized void add(Event event) {
+    addRanges(event);
+    List<Event> updated = new ArrayList<>(events);
+    updated.add(event);
+    events = Collections.unmodifiableList(updated);
+  }
+
+  /** Removes one event equal to {@code event}. Returns false if the index had none. */
+  public synchronized boolean remove(Event event) {
+    List<Event> updated = new ArrayList<>(events);
+    if (!updated.remove(event)) {
+      return false;
+    }
+    removeRanges(event);
+    events = Collections.unmodifiableList(updated);
+    return true;
+  }
+
+  private void addRanges(Event event) {
+    TimeRange when = event.getWhen();
+    if (when.duration() <= 0) {
+      return;
+    }
+    for (String attendee : event.getAttendees()) {
+      rangesByAttendee.computeIfAbsent(attendee, key -> new ArrayList<>()).add(when);
+      busyByAttendee.put(attendee,
+          insert(busyByAttendee.getOrDefault(attendee, NOT_BUSY), when.start(), when.end()));
+    }
+  }
+
+  private void removeRanges(Event event) {
+    for (String attendee : event.getAttendees()) {
+      List<TimeRange> ranges = rangesByAttendee.get(attendee);
+      if (ranges == null || !ranges.remove(event.getWhen())) {
+        continue;
+      }
+      if (ranges.isEmpty()) {
+        rangesByAttendee.remove(attendee);
+        busyByAttendee.remove(attendee);
+      } else {
+        busyByAttendee.put(attendee, merge(ranges));
+      }
+    }
+  }
+
+  /**
+   * Returns the sorted, non-overlapping busy ranges of {@code attendee} as
+   * {@code [start0, end0, start1, end1, ...]}. The array must not be modified.
+   */
+  public int[] getBusy(String attendee) {
+    return busyByAttendee.getOrDefault(attendee, NOT_BUSY);
+  }
+
+  /** Returns a copy of {@code busy} with {@code [start, end)} merged in. */
+  static int[] insert(int[] busy, int start, int end) {
+    int count = busy.length / 2;
+    // Ranges first to last-1 overlap or touch the new one
+    int first = firstEndingAtOrAfter(busy, start);
+    int last = firstStartingAfter(busy, end);
+    if (first < last) {
+      start = Math.min(start, busy[2 * first]);
+      end = Math.max(end, busy[2 * last - 1]);
+    }
+
+    int[] merged = new int[2 * (count - (last - first) + 1)];
+    System.arraycopy(busy, 0, merged, 0, 2 * first);
+    merged[2 * first] = start;
+    merged[2 * first + 1] = end;
+    System.arraycopy(busy, 2 * last, merged, 2 * first + 2, 2 * (count - last));
+    return merged;
+  }
+
+  private static int[] merge(List<TimeRange> ranges) {
+    List<TimeRange> sorted = new ArrayList<>(ranges);
+    sorted.sort(TimeRange.ORDER_BY_START);
+
+    int[] busy = new int[2 * sorted.size()];
+    int count = 0;
+    for (TimeRange range : sorted) {
+      if (count > 0 && range.start() <= busy[2 * count - 1]) {
+        busy[2 * count - 1] = Math.max(busy[2 * count - 1], range.end());
+      } else {
+        busy[2 * count] = range.start();
+        busy[2 * count + 1] = range.end();
+        count++;
+      }
+    }
+    return Arrays.copyOf(busy, 2 * count);
+  }
+
+  private static int firstEndingAtOrAfter(int[] busy, int point) {
+    int low = 0;
+    int high = busy.length / 2;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (busy[2 * middle + 1] < point) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static int firstStartingAfter(int[] busy, int point) {
+    int low = 0;
+    int high = busy.length / 2;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (busy[2 * middle] <= point) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * A span of time in minutes since the epoch, for scheduling across more than one day. Like
+ * {@code TimeRange} the end is exclusive, but the bounds are longs and a range may cover any number
+ * of days.
+ */
+public final class EpochRange {
+  public static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  private final long start;
+  private final long duration;
+
+  private EpochRange(long start, long duration) {
+    this.start = start;
+    this.duration = duration;
+  }
+
+  /** Creates a range from {@code start} (inclusive) to {@code end} (exclusive). */
+  public static EpochRange fromStartEnd(long start, long end) {
+    return new EpochRange(start, end - start);
+  }
+
+  public static EpochRange fromStartDuration(long start, long duration) {
+    return new EpochRange(start, duration);
+  }
+
+  /** Returns the whole of day {@code day}, counted in days since the epoch. */
+  public static EpochRange ofDay(long day) {
+    return new EpochRange(day * MINUTES_PER_DAY, MINUTES_PER_DAY);
+  }
+
+  /** Returns {@code range} placed on day {@code day}. */
+  public static EpochRange onDay(long day, TimeRange range) {
+    return new EpochRange(day * MINUTES_PER_DAY + range.start(), range.duration());
+  }
+
+  /** Returns the day, counted from the epoch, that {@code minute} falls on. */
+  public static long dayOf(long minute) {
+    return Math.floorDiv(minute, MINUTES_PER_DAY);
+  }
+
+  /**
+   * Returns the start of the range in minutes since the epoch.
+   */
+  public long start() {
+    return start;
+  }
+
+  /**
+   * Returns the number of minutes between the start and end.
+   */
+  public long duration() {
+    return duration;
+  }
+
+  /**
+   * Returns the end of the range. This ending value is the closing exclusive bound.
+   */
+  public long end() {
+    return start + duration;
+  }
+
+  public boolean contains(long point) {
+    return duration > 0 && point >= start && point < end();
+  }
+
+  /**
+   * Checks if two ranges overlap, with the same meaning as {@link TimeRange#overlaps}.
+   */
+  public boolean overlaps(EpochRange other) {
+    return this.contains(other.start) || other.contains(this.start);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof EpochRange
+        && start == ((EpochRange) other).start
+        && duration == ((EpochRange) other).duration;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(start) ^ Long.hashCode(duration);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Range: [%d, %d)", start, start + duration);
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Answers queries from a {@link BusyIntervalIndex}, reading only the busy ranges of the people in
+ * the request. The cost grows with the size of the request rather than of the calendar.
+ *
+ * <p>The index stands in for the events, so {@link #query} must be passed the index's current
+ * {@link BusyIntervalIndex#getEvents} list, and rejects any other collection rather than answer
+ * for events it has not seen.
+ */
+public final class IndexedStrategy implements SchedulingStrategy {
+  private final BusyIntervalIndex index;
+
+  public IndexedStrategy(BusyIntervalIndex index) {
+    if (index == null) {
+      throw new IllegalArgumentException("index cannot be null");
+    }
+    this.index = index;
+  }
+
+  @Override
+  public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    if (events != index.getEvents()) {
+      throw new IllegalArgumentException("IndexedStrategy only answers for the index's events");
+    }
+
+    long duration = request.getDuration();
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return Collections.emptyList();
+    }
+
+    Collection<String> required = request.getAttendees();
+    Collection<String> optional = request.getOptionalAttendees();
+
+    // Read each attendee's ranges once, so a concurrent change to the index cannot be half seen
+    int[][] requiredRanges = getBusy(required);
+    int[][] optionalRanges = getBusy(optional);
+
+    long[] busy = new long[countRanges(requiredRanges) + countRanges(optionalRanges)];
+    int requiredCount = addRanges(busy, 0, requiredRanges);
+    int everyoneCount = addRanges(busy, requiredCount, optionalRanges);
+
+    if (everyoneCount > requiredCount) {
+      long[] everyoneBusy = Arrays.copyOf(busy, everyoneCount);
+      Arrays.sort(everyoneBusy);
+      List<TimeRange> everyoneFree =
+          SweepLineStrategy.freeRanges(everyoneBusy, everyoneCount, duration);
+      if (!everyoneFree.isEmpty() || required.isEmpty()) {
+        return everyoneFree;
+      }
+    }
+
+    Arrays.sort(busy, 0, requiredCount);
+    return SweepLineStrategy.freeRanges(busy, requiredCount, duration);
+  }
+
+  private int[][] getBusy(Collection<String> attendees) {
+    int[][] busy = new int[attendees.size()][];
+    int i = 0;
+    for (String attendee : attendees) {
+      busy[i++] = index.getBusy(attendee);
+    }
+    return busy;
+  }
+
+  private static int countRanges(int[][] busy) {
+    int count = 0;
+    for (int[] ranges : busy) {
+      count += ranges.length / 2;
+    }
+    return count;
+  }
+
+  /** Packs the busy ranges into {@code packed} starting at {@code from} and returns the end. */
+  private static int addRanges(long[] packed, int from, int[][] busy) {
+    int count = from;
+    for (int[] ranges : busy) {
+      for (int i = 0; i < ranges.length; i += 2) {
+        packed[count++] = ((long) ranges[i] << 32) | (ranges[i + 1] & 0xFFFFFFFFL);
+      }
+    }
+    return count;
+  }
+}
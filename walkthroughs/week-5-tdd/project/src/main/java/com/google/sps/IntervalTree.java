@@ -0,0 +1,257 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Values keyed by {@code TimeRange}, answering "what is at this minute" and "what overlaps this
+ * range" in O(log n + k) for k results instead of a scan of every range.
+ *
+ * <p>This is a height-balanced (AVL) search tree ordered by start and then end. Every node also
+ * records the latest end in its subtree, so whole subtrees that finish too early are skipped.
+ * Values added under equal ranges share a node. Not thread-safe.
+ */
+public final class IntervalTree<V> {
+  private Node<V> root;
+  private int size;
+
+  /** Returns a tree of {@code events} keyed by when they happen. */
+  public static IntervalTree<Event> of(Collection<Event> events) {
+    IntervalTree<Event> tree = new IntervalTree<>();
+    for (Event event : events) {
+      tree.insert(event.getWhen(), event);
+    }
+    return tree;
+  }
+
+  /** Returns the number of values in the tree. */
+  public int size() {
+    return size;
+  }
+
+  public void insert(TimeRange range, V value) {
+    root = insert(root, range, value);
+    size++;
+  }
+
+  /** Removes one {@code value} added under {@code range}. Returns false if there was none. */
+  public boolean remove(TimeRange range, V value) {
+    int before = size;
+    root = remove(root, range, value);
+    return size < before;
+  }
+
+  /** Returns the values whose ranges contain {@code point}, in order of range. */
+  public List<V> stab(int point) {
+    List<V> found = new ArrayList<>();
+    stab(root, point, found);
+    return found;
+  }
+
+  /**
+   * Returns the values whose ranges overlap {@code range} as defined by
+   * {@link TimeRange#overlaps}, in order of range.
+   */
+  public List<V> overlapping(TimeRange range) {
+    List<V> found = new ArrayList<>();
+    overlapping(root, range, found);
+    return found;
+  }
+
+  /** Returns true if any range in the tree overlaps {@code range}. */
+  public boolean overlapsAny(TimeRange range) {
+    return firstOverlapping(root, range) != null;
+  }
+
+  private static <V> void stab(Node<V> node, int point, List<V> found) {
+    // Nothing in a subtree that ends at or before the point can contain it
+    if (node == null || node.maxEnd <= point) {
+      return;
+    }
+    stab(node.left, point, found);
+    if (node.range.contains(point)) {
+      found.addAll(node.values);
+    }
+    // Everything to the right starts no earlier than this node
+    if (node.range.start() <= point) {
+      stab(node.right, point, found);
+    }
+  }
+
+  private static <V> void overlapping(Node<V> node, TimeRange range, List<V> found) {
+    // An empty range at the query start still overlaps it, hence < rather than <=
+    if (node == null || node.maxEnd < range.start()) {
+      return;
+    }
+    overlapping(node.left, range, found);
+    if (node.range.overlaps(range)) {
+      found.addAll(node.values);
+    }
+    if (node.range.start() <= Math.max(range.start(), range.end())) {
+      overlapping(node.right, range, found);
+    }
+  }
+
+  private static <V> Node<V> firstOverlapping(Node<V> node, TimeRange range) {
+    if (node == null || node.maxEnd < range.start()) {
+      return null;
+    }
+    Node<V> left = firstOverlapping(node.left, range);
+    if (left != null) {
+      return left;
+    }
+    if (node.range.overlaps(range)) {
+      return node;
+    }
+    if (node.range.start() <= Math.max(range.start(), range.end())) {
+      return firstOverlapping(node.right, range);
+    }
+    return null;
+  }
+
+  private Node<V> insert(Node<V> node, TimeRange range, V value) {
+    if (node == null) {
+      return new Node<>(range, value);
+    }
+    int order = compare(range, node.range);
+    if (order < 0) {
+      node.left = insert(node.left, range, value);
+    } else if (order > 0) {
+      node.right = insert(node.right, range, value);
+    } else {
+      node.values.add(value);
+      return node;
+    }
+    return rebalance(node);
+  }
+
+  private Node<V> remove(Node<V> node, TimeRange range, V value) {
+    if (node == null) {
+      return null;
+    }
+    int order = compare(range, node.range);
+    if (order < 0) {
+      node.left = remove(node.left, range, value);
+    } else if (order > 0) {
+      node.right = remove(node.right, range, value);
+    } else {
+      if (!node.values.remove(value)) {
+        return node;
+      }
+      size--;
+      if (!node.values.isEmpty()) {
+        return node;
+      }
+      if (node.left == null) {
+        return node.right;
+      }
+      if (node.right == null) {
+        return node.left;
+      }
+      // Replace the node with its successor, the leftmost node of the right subtree
+      Node<V> successor = node.right;
+      while (successor.left != null) {
+        successor = successor.left;
+      }
+      successor.right = removeLeftmost(node.right);
+      successor.left = node.left;
+      node = successor;
+    }
+    return rebalance(node);
+  }
+
+  private static <V> Node<V> removeLeftmost(Node<V> node) {
+    if (node.left == null) {
+      return node.right;
+    }
+    node.left = removeLeftmost(node.left);
+    return rebalance(node);
+  }
+
+  private static <V> Node<V> rebalance(Node<V> node) {
+    node.update();
+    int balance = height(node.left) - height(node.right);
+    if (balance > 1) {
+      if (height(node.left.left) < height(node.left.right)) {
+        node.left = rotateLeft(node.left);
+      }
+      return rotateRight(node);
+    }
+    if (balance < -1) {
+      if (height(node.right.right) < height(node.right.left)) {
+        node.right = rotateRight(node.right);
+      }
+      return rotateLeft(node);
+    }
+    return node;
+  }
+
+  private static <V> Node<V> rotateLeft(Node<V> node) {
+    Node<V> right = node.right;
+    node.right = right.left;
+    right.left = node;
+    node.update();
+    right.update();
+    return right;
+  }
+
+  private static <V> Node<V> rotateRight(Node<V> node) {
+    Node<V> left = node.left;
+    node.left = left.right;
+    left.right = node;
+    node.update();
+    left.update();
+    return left;
+  }
+
+  private static int height(Node<?> node) {
+    return (node == null) ? 0 : node.height;
+  }
+
+  private static int compare(TimeRange a, TimeRange b) {
+    int order = Integer.compare(a.start(), b.start());
+    return (order != 0) ? order : Integer.compare(a.end(), b.end());
+  }
+
+  private static final class Node<V> {
+    private final TimeRange range;
+    private final List<V> values = new ArrayList<>(1);
+    private Node<V> left;
+    private Node<V> right;
+    private int height;
+    // The latest end of any range in this subtree
+    private int maxEnd;
+
+    private Node(TimeRange range, V value) {
+      this.range = range;
+      values.add(value);
+      update();
+    }
+
+    private void update() {
+      height = 1 + Math.max(height(left), height(right));
+      maxEnd = range.end();
+      if (left != null) {
+        maxEnd = Math.max(maxEnd, left.maxEnd);
+      }
+      if (right != null) {
+        maxEnd = Math.max(maxEnd, right.maxEnd);
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Busy times for scheduling over any horizon, such as a week or a quarter. Each attendee's busy
+ * times are kept per day, as that day's merged ranges in minutes of the day, so a query only reads
+ * the days inside its horizon and its cost follows the length of the window rather than of the
+ * whole calendar. Not thread-safe.
+ */
+public final class MultiDayCalendar {
+  private final Map<String, NavigableMap<Long, int[]>> daysByAttendee = new HashMap<>();
+
+  /** Marks {@code attendees} busy for {@code when}, which may cross any number of days. */
+  public void add(EpochRange when, Collection<String> attendees) {
+    if (when.duration() <= 0) {
+      return;
+    }
+    for (String attendee : attendees) {
+      NavigableMap<Long, int[]> days =
+          daysByAttendee.computeIfAbsent(attendee, key -> new TreeMap<>());
+      long lastDay = EpochRange.dayOf(when.end() - 1);
+      for (long day = EpochRange.dayOf(when.start()); day <= lastDay; day++) {
+        long dayStart = day * EpochRange.MINUTES_PER_DAY;
+        int start = (int) (Math.max(when.start(), dayStart) - dayStart);
+        int end = (int) (Math.min(when.end(), dayStart + EpochRange.MINUTES_PER_DAY) - dayStart);
+        days.put(day, BusyIntervalIndex.insert(days.getOrDefault(day, new int[0]), start, end));
+      }
+    }
+  }
+
+  /** Adds the single-day {@code events} as happening on day {@code day}. */
+  public void addDay(long day, Collection<Event> events) {
+    for (Event event : events) {
+      add(EpochRange.onDay(day, event.getWhen()), event.getAttendees());
+    }
+  }
+
+  /**
+   * Returns the free ranges within {@code horizon} that are at least as long as the request, with
+   * the same handling of optional attendees as {@link SchedulingStrategy#query}. Free ranges run
+   * on across midnight, so meetings longer than a day can be found too.
+   */
+  public List<EpochRange> query(MeetingRequest request, EpochRange horizon) {
+    long duration = request.getDuration();
+    // An empty horizon has no room for any meeting, and on a day boundary it would make the day
+    // lookup below run backwards
+    if (horizon.duration() <= 0 || duration > horizon.duration()) {
+      return Collections.emptyList();
+    }
+    if (horizon.duration() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("horizon is too long: " + horizon);
+    }
+
+    long[] requiredBusy = busyWithin(request.getAttendees(), horizon);
+    if (!request.getOptionalAttendees().isEmpty()) {
+      long[] optionalBusy = busyWithin(request.getOptionalAttendees(), horizon);
+      long[] everyoneBusy = Arrays.copyOf(requiredBusy, requiredBusy.length + optionalBusy.length);
+      System.arraycopy(optionalBusy, 0, everyoneBusy, requiredBusy.length, optionalBusy.length);
+      Arrays.sort(everyoneBusy);
+      List<EpochRange> everyoneFree = freeRanges(everyoneBusy, horizon, duration);
+      if (!everyoneFree.isEmpty() || request.getAttendees().isEmpty()) {
+        return everyoneFree;
+      }
+    }
+    Arrays.sort(requiredBusy);
+    return freeRanges(requiredBusy, horizon, duration);
+  }
+
+  /**
+   * Returns the attendees' busy ranges that fall inside {@code horizon}, clipped to it and packed
+   * as offsets from its start, with the start offset above the end offset.
+   */
+  private long[] busyWithin(Collection<String> attendees, EpochRange horizon) {
+    long firstDay = EpochRange.dayOf(horizon.start());
+    long lastDay = EpochRange.dayOf(horizon.end() - 1);
+
+    List<long[]> chunks = new ArrayList<>();
+    int count = 0;
+    for (String attendee : attendees) {
+      NavigableMap<Long, int[]> days = daysByAttendee.get(attendee);
+      if (days == null) {
+        continue;
+      }
+      for (Map.Entry<Long, int[]> entry : days.subMap(firstDay, true, lastDay, true).entrySet()) {
+        long dayStart = entry.getKey() * EpochRange.MINUTES_PER_DAY;
+        int[] busy = entry.getValue();
+        long[] packed = new long[busy.length / 2];
+        int packedCount = 0;
+        for (int i = 0; i < busy.length; i += 2) {
+          long start = Math.max(dayStart + busy[i], horizon.start()) - horizon.start();
+          long end = Math.min(dayStart + busy[i + 1], horizon.end()) - horizon.start();
+          if (start < end) {
+            packed[packedCount++] = (start << 32) | end;
+          }
+        }
+        chunks.add(Arrays.copyOf(packed, packedCount));
+        count += packedCount;
+      }
+    }
+
+    long[] all = new long[count];
+    int offset = 0;
+    for (long[] chunk : chunks) {
+      System.arraycopy(chunk, 0, all, offset, chunk.length);
+      offset += chunk.length;
+    }
+    return all;
+  }
+
+  private static List<EpochRange> freeRanges(long[] busy, EpochRange horizon, long duration) {
+    List<EpochRange> free = new ArrayList<>();
+    long freeFrom = 0;
+    for (long packed : busy) {
+      long start = packed >>> 32;
+      addIfLongEnough(free, horizon, freeFrom, start, duration);
+      freeFrom = Math.max(freeFrom, packed & 0xFFFFFFFFL);
+    }
+    addIfLongEnough(free, horizon, freeFrom, horizon.duration(), duration);
+    return free;
+  }
+
+  private static void addIfLongEnough(List<EpochRange> free, EpochRange horizon, long start,
+      long end, long duration) {
+    if (end > start && end - start >= duration) {
+      free.add(EpochRange.fromStartEnd(horizon.start() + start, horizon.start() + end));
+    }
+  }
+}
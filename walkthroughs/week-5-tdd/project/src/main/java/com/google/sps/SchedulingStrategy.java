@@ -0,0 +1,32 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+
+/**
+ * An algorithm for finding the ranges of the day in which a meeting fits around existing events.
+ * Implementations return ranges in chronological order.
+ */
+public interface SchedulingStrategy {
+
+  /**
+   * Returns every free range of the day that is at least as long as the request and in which none
+   * of the request's attendees, required or optional, are at any of {@code events}. If there are
+   * no such ranges but the request has required attendees, returns the ranges that suit just the
+   * required attendees instead.
+   */
+  Collection<TimeRange> query(Collection<Event> events, MeetingRequest request);
+}
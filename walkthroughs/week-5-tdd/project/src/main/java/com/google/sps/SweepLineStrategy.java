@@ -0,0 +1,116 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Gathers the busy ranges of the relevant events once, sorts them once and merges them in a single
+ * sweep across the day, so a day with n events costs O(n log n). Optional attendees cost at most
+ * one more sort and sweep.
+ */
+public final class SweepLineStrategy implements SchedulingStrategy {
+
+  @Override
+  public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    long duration = request.getDuration();
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return Collections.emptyList();
+    }
+
+    Collection<String> required = request.getAttendees();
+    Collection<String> optional = request.getOptionalAttendees();
+
+    // One pass sorts each event into the ranges that block the required attendees and the ranges
+    // that block everyone, so the fallback answer never needs a second walk over the events
+    long[] requiredBusy = new long[events.size()];
+    long[] everyoneBusy = new long[events.size()];
+    int requiredCount = 0;
+    int everyoneCount = 0;
+    for (Event event : events) {
+      boolean requiredAttends = false;
+      boolean optionalAttends = false;
+      for (String attendee : event.getAttendees()) {
+        if (required.contains(attendee)) {
+          requiredAttends = true;
+          break;
+        }
+        optionalAttends = optionalAttends || optional.contains(attendee);
+      }
+
+      if (requiredAttends) {
+        requiredBusy[requiredCount++] = pack(event.getWhen());
+      }
+      if (requiredAttends || optionalAttends) {
+        everyoneBusy[everyoneCount++] = pack(event.getWhen());
+      }
+    }
+
+    if (everyoneCount > requiredCount) {
+      // Packing start above end makes a primitive sort order the ranges by start
+      Arrays.sort(everyoneBusy, 0, everyoneCount);
+      List<TimeRange> everyoneFree = freeRanges(everyoneBusy, everyoneCount, duration);
+      // With no required attendees there is nobody to fall back to
+      if (!everyoneFree.isEmpty() || required.isEmpty()) {
+        return everyoneFree;
+      }
+    }
+
+    Arrays.sort(requiredBusy, 0, requiredCount);
+    return freeRanges(requiredBusy, requiredCount, duration);
+  }
+
+  /**
+   * Returns the gaps of at least {@code duration} minutes between the first {@code count} packed
+   * busy ranges, which must be sorted by start.
+   */
+  static List<TimeRange> freeRanges(long[] busy, int count, long duration) {
+    List<TimeRange> free = new ArrayList<>();
+    int dayEnd = TimeRange.WHOLE_DAY.end();
+
+    // Everything before freeFrom is known to be busy or already reported
+    int freeFrom = TimeRange.START_OF_DAY;
+    for (int i = 0; i < count && freeFrom < dayEnd; i++) {
+      int start = unpackStart(busy[i]);
+      int end = unpackEnd(busy[i]);
+      addIfLongEnough(free, freeFrom, Math.min(start, dayEnd), duration);
+      freeFrom = Math.max(freeFrom, end);
+    }
+    addIfLongEnough(free, freeFrom, dayEnd, duration);
+    return free;
+  }
+
+  static long pack(TimeRange range) {
+    return ((long) range.start() << 32) | (range.end() & 0xFFFFFFFFL);
+  }
+
+  static int unpackStart(long packed) {
+    return (int) (packed >>> 32);
+  }
+
+  static int unpackEnd(long packed) {
+    return (int) packed;
+  }
+
+  private static void addIfLongEnough(List<TimeRange> free, int start, int end, long duration) {
+    if (end > start && end - start >= duration) {
+      free.add(TimeRange.fromStartEnd(start, end, false));
+    }
+  }
+}
@@ -0,0 +1,77 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.JsonParseException;
+import com.google.sps.Event;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Adds an event to the calendar (POST) or removes one (DELETE), given the event as JSON. Adding
+ * responds with the events the new one conflicts with, which is empty if there are none.
+ */
+@WebServlet("/event")
+public class EventServlet extends HttpServlet {
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Event event = readEvent(request, response);
+    if (event == null) {
+      return;
+    }
+    List<Event> conflicts = EventStore.get(getServletContext()).add(event);
+
+    response.setContentType("application/json");
+    Json.GSON.toJson(conflicts, response.getWriter());
+  }
+
+  @Override
+  public void doDelete(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    Event event = readEvent(request, response);
+    if (event == null) {
+      return;
+    }
+    if (EventStore.get(getServletContext()).remove(event)) {
+      response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    } else {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, "No such event");
+    }
+  }
+
+  /**
+   * Returns the event in the request body, or sends a 400 and returns null if there isn't a valid
+   * one. Events must fall within the day, as the scheduling strategies assume.
+   */
+  private static Event readEvent(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    try {
+      Event event = Json.GSON.fromJson(request.getReader(), Event.class);
+      if (event != null && event.getWhen().duration() >= 0
+          && TimeRange.WHOLE_DAY.contains(event.getWhen())) {
+        return event;
+      }
+    } catch (JsonParseException | IllegalArgumentException e) {
+      // Fall through to the error below
+    }
+    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected an event");
+    return null;
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.BitsetStrategy;
+import com.google.sps.BusyIntervalIndex;
+import com.google.sps.Event;
+import com.google.sps.Events;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.IncrementalInsertStrategy;
+import com.google.sps.IndexedStrategy;
+import com.google.sps.IntervalTree;
+import com.google.sps.MeetingRequest;
+import com.google.sps.SchedulingStrategy;
+import com.google.sps.SweepLineStrategy;
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * The calendar's events, shared by the servlets. Events start as {@link Events#events} and change
+ * through {@link EventServlet}; every change goes through a {@link BusyIntervalIndex}, so queries
+ * see the index kept up to date rather than rebuilt. An {@link IntervalTree} of the same events
+ * finds the ones a new event clashes with without scanning the whole calendar.
+ */
+@WebListener
+public class EventStore implements ServletContextListener {
+  // Names the SchedulingStrategy that answers queries: indexed (the default), bitset, sweep-line
+  // or incremental
+  private static final String STRATEGY_PROPERTY = "scheduling.strategy";
+
+  private static final String ATTRIBUTE = EventStore.class.getName();
+
+  // Changes hold the write lock so a query never sees the events change part way through
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final BusyIntervalIndex index = new BusyIntervalIndex(Arrays.asList(Events.events));
+  private final IntervalTree<Event> eventsByTime = IntervalTree.of(index.getEvents());
+  private String strategyName;
+
+  // The bitset strategy is built over one list of events, so it is rebuilt after each change
+  private List<Event> bitsetEvents;
+  private BitsetStrategy bitsetStrategy;
+
+  /** Returns the store for the servlets of {@code context}. */
+  static EventStore get(ServletContext context) {
+    return (EventStore) context.getAttribute(ATTRIBUTE);
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    strategyName = System.getProperty(STRATEGY_PROPERTY, "indexed");
+    // Fail at startup rather than on the first query if the property is wrong
+    strategyFor(index.getEvents());
+    event.getServletContext().setAttribute(ATTRIBUTE, this);
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    event.getServletContext().removeAttribute(ATTRIBUTE);
+  }
+
+  List<Event> getEvents() {
+    return index.getEvents();
+  }
+
+  /**
+   * Adds {@code event} and returns the events it conflicts with: those already in the calendar
+   * that overlap it and share an attendee with it.
+   */
+  List<Event> add(Event event) {
+    lock.writeLock().lock();
+    try {
+      List<Event> conflicts = new ArrayList<>();
+      for (Event other : eventsByTime.overlapping(event.getWhen())) {
+        if (!Collections.disjoint(other.getAttendees(), event.getAttendees())) {
+          conflicts.add(other);
+        }
+      }
+      index.add(event);
+      eventsByTime.insert(event.getWhen(), event);
+      return conflicts;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Removes one event equal to {@code event}. Returns false if there was none. */
+  boolean remove(Event event) {
+    lock.writeLock().lock();
+    try {
+      if (!index.remove(event)) {
+        return false;
+      }
+      eventsByTime.remove(event.getWhen(), event);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  Collection<TimeRange> query(MeetingRequest request) {
+    lock.readLock().lock();
+    try {
+      List<Event> events = index.getEvents();
+      return new FindMeetingQuery(strategyFor(events)).query(events, request);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private SchedulingStrategy strategyFor(List<Event> events) {
+    switch (strategyName) {
+      case "indexed":
+        return new IndexedStrategy(index);
+      case "bitset":
+        return bitsetStrategy(events);
+      case "sweep-line":
+        return new SweepLineStrategy();
+      case "incremental":
+        return new IncrementalInsertStrategy();
+      default:
+        throw new IllegalArgumentException("Unknown scheduling strategy: " + strategyName);
+    }
+  }
+
+  private synchronized BitsetStrategy bitsetStrategy(List<Event> events) {
+    if (events != bitsetEvents) {
+      bitsetStrategy = new BitsetStrategy(events);
+      bitsetEvents = events;
+    }
+    return bitsetStrategy;
+  }
+}
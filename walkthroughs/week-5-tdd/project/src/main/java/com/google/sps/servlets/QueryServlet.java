@@ -14,13 +14,9 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
-import com.google.sps.FindMeetingQuery;
 import com.google.sps.MeetingRequest;
 import com.google.sps.TimeRange;
-import com.google.gson.Gson;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -31,21 +27,14 @@ import javax.servlet.http.HttpServletResponse;
 public class QueryServlet extends HttpServlet {
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
-
     // Convert the JSON to an instance of MeetingRequest.
-    MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+    MeetingRequest meetingRequest = Json.GSON.fromJson(request.getReader(), MeetingRequest.class);
 
     // Find the possible meeting times.
-    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
-
-    // Convert the times to JSON
-    String jsonResponse = gson.toJson(answer);
+    Collection<TimeRange> answer = EventStore.get(getServletContext()).query(meetingRequest);
 
-    // Send the JSON back as the response
+    // Convert the times to JSON and send them back as the response
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    Json.GSON.toJson(answer, response.getWriter());
   }
 }
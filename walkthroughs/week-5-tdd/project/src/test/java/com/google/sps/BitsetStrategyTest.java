@@ -0,0 +1,48 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BitsetStrategyTest {
+  private static final String PERSON_A = "Person A";
+
+  @Test
+  public void setRangeAcrossWordBoundaries() {
+    long[] bits = new long[3];
+    BitsetStrategy.setRange(bits, 60, 130);
+
+    Assert.assertEquals(0xFL << 60, bits[0]);
+    Assert.assertEquals(-1L, bits[1]);
+    Assert.assertEquals(0x3L, bits[2]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsOtherEvents() {
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(0, 60), Arrays.asList(PERSON_A)));
+    BitsetStrategy strategy = new BitsetStrategy(events);
+
+    strategy.query(new ArrayList<>(events), new MeetingRequest(Arrays.asList(PERSON_A), 30));
+  }
+}
@@ -0,0 +1,95 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BusyIntervalIndexTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  @Test
+  public void mergesOverlappingAndTouchingRanges() {
+    BusyIntervalIndex index = new BusyIntervalIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(100, 200, false), Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(300, 400, false), Arrays.asList(PERSON_A)),
+        new Event("Event 3", TimeRange.fromStartEnd(200, 250, false), Arrays.asList(PERSON_A)),
+        new Event("Event 4", TimeRange.fromStartEnd(500, 600, false), Arrays.asList(PERSON_A)),
+        new Event("Event 5", TimeRange.fromStartEnd(350, 550, false), Arrays.asList(PERSON_A))));
+
+    Assert.assertArrayEquals(new int[] {100, 250, 300, 600}, index.getBusy(PERSON_A));
+    Assert.assertArrayEquals(new int[0], index.getBusy(PERSON_B));
+  }
+
+  @Test
+  public void removeRestoresEarlierRanges() {
+    Event first =
+        new Event("Event 1", TimeRange.fromStartEnd(100, 200, false), Arrays.asList(PERSON_A));
+    Event second = new Event("Event 2", TimeRange.fromStartEnd(150, 300, false),
+        Arrays.asList(PERSON_A, PERSON_B));
+    BusyIntervalIndex index = new BusyIntervalIndex(Arrays.asList(first, second));
+
+    Assert.assertTrue(index.remove(second));
+    Assert.assertFalse(index.remove(second));
+
+    Assert.assertArrayEquals(new int[] {100, 200}, index.getBusy(PERSON_A));
+    Assert.assertArrayEquals(new int[0], index.getBusy(PERSON_B));
+    Assert.assertEquals(Arrays.asList(first), index.getEvents());
+  }
+
+  @Test
+  public void indexedStrategyFollowsAddsAndRemoves() {
+    Random random = new Random(23);
+    BusyIntervalIndex index = new BusyIntervalIndex();
+    IndexedStrategy strategy = new IndexedStrategy(index);
+    List<Event> events = new ArrayList<>();
+
+    // Keep the index up to date through a mix of additions and removals
+    for (int step = 0; step < 500; step++) {
+      if (!events.isEmpty() && random.nextInt(3) == 0) {
+        index.remove(events.remove(random.nextInt(events.size())));
+      } else {
+        Event event = RandomCalendars.events(random, 1).get(0);
+        event = new Event("Event " + step, event.getWhen(), event.getAttendees());
+        events.add(event);
+        index.add(event);
+      }
+
+      MeetingRequest request = RandomCalendars.request(random);
+      Assert.assertEquals(events, index.getEvents());
+      Assert.assertEquals(RandomCalendars.expectedAnswer(events, request),
+          strategy.query(index.getEvents(), request));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void indexedStrategyRejectsOtherEvents() {
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(100, 200, false), Arrays.asList(PERSON_A)));
+    IndexedStrategy strategy = new IndexedStrategy(new BusyIntervalIndex(events));
+
+    strategy.query(new ArrayList<>(events),
+        new MeetingRequest(Arrays.asList(PERSON_A), 30));
+  }
+}
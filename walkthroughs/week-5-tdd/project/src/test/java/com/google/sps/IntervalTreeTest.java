@@ -0,0 +1,122 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class IntervalTreeTest {
+  private static final String PERSON_A = "Person A";
+
+  @Test
+  public void stabFindsRangesContainingPoint() {
+    IntervalTree<String> tree = new IntervalTree<>();
+    tree.insert(TimeRange.fromStartEnd(100, 200, false), "a");
+    tree.insert(TimeRange.fromStartEnd(150, 300, false), "b");
+    tree.insert(TimeRange.fromStartEnd(200, 250, false), "c");
+    tree.insert(TimeRange.fromStartEnd(100, 200, false), "d");
+
+    Assert.assertEquals(Arrays.asList("a", "d", "b"), tree.stab(150));
+    Assert.assertEquals(Arrays.asList("b", "c"), tree.stab(200));
+    Assert.assertEquals(Collections.emptyList(), tree.stab(300));
+  }
+
+  @Test
+  public void removeTakesOutOneValue() {
+    IntervalTree<String> tree = new IntervalTree<>();
+    TimeRange range = TimeRange.fromStartEnd(100, 200, false);
+    tree.insert(range, "a");
+    tree.insert(range, "b");
+
+    Assert.assertTrue(tree.remove(range, "a"));
+    Assert.assertFalse(tree.remove(range, "a"));
+    Assert.assertEquals(1, tree.size());
+    Assert.assertEquals(Arrays.asList("b"), tree.overlapping(TimeRange.WHOLE_DAY));
+  }
+
+  @Test
+  public void eventConflicts() {
+    Event breakfast =
+        new Event("Breakfast", TimeRange.fromStartEnd(480, 540, false), Arrays.asList(PERSON_A));
+    Event lunch =
+        new Event("Lunch", TimeRange.fromStartEnd(720, 780, false), Arrays.asList(PERSON_A));
+    IntervalTree<Event> tree = IntervalTree.of(Arrays.asList(breakfast, lunch));
+
+    Assert.assertTrue(tree.overlapsAny(TimeRange.fromStartEnd(530, 600, false)));
+    Assert.assertFalse(tree.overlapsAny(TimeRange.fromStartEnd(540, 720, false)));
+    Assert.assertEquals(Arrays.asList(breakfast, lunch),
+        tree.overlapping(TimeRange.fromStartEnd(500, 730, false)));
+  }
+
+  @Test
+  public void matchesLinearScan() {
+    Random random = new Random(24);
+    IntervalTree<Integer> tree = new IntervalTree<>();
+    List<TimeRange> ranges = new ArrayList<>();
+
+    for (int step = 0; step < 3000; step++) {
+      if (!ranges.isEmpty() && random.nextInt(3) == 0) {
+        int index = random.nextInt(ranges.size());
+        Assert.assertTrue(tree.remove(ranges.get(index), index));
+        // Keep values equal to list positions by moving the last range into the gap
+        TimeRange last = ranges.remove(ranges.size() - 1);
+        if (index < ranges.size()) {
+          Assert.assertTrue(tree.remove(last, ranges.size()));
+          ranges.set(index, last);
+          tree.insert(last, index);
+        }
+      } else {
+        ranges.add(randomRange(random));
+        tree.insert(ranges.get(ranges.size() - 1), ranges.size() - 1);
+      }
+      Assert.assertEquals(ranges.size(), tree.size());
+
+      TimeRange query = randomRange(random);
+      List<Integer> expectedOverlapping = new ArrayList<>();
+      List<Integer> expectedStabbed = new ArrayList<>();
+      for (int i = 0; i < ranges.size(); i++) {
+        if (ranges.get(i).overlaps(query)) {
+          expectedOverlapping.add(i);
+        }
+        if (ranges.get(i).contains(query.start())) {
+          expectedStabbed.add(i);
+        }
+      }
+      Assert.assertEquals(expectedOverlapping, sorted(tree.overlapping(query)));
+      Assert.assertEquals(expectedStabbed, sorted(tree.stab(query.start())));
+    }
+  }
+
+  private static TimeRange randomRange(Random random) {
+    // Some empty ranges, which only overlap ranges that contain their start
+    int start = random.nextInt(1440);
+    return TimeRange.fromStartDuration(start, random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(90));
+  }
+
+  private static List<Integer> sorted(List<Integer> values) {
+    List<Integer> sorted = new ArrayList<>(values);
+    Collections.sort(sorted);
+    return sorted;
+  }
+}
@@ -0,0 +1,116 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class MultiDayCalendarTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  // The first day of the year 2020, in days since the epoch.
+  private static final long DAY_2020_01_01 = 18262;
+
+  private static final int DAY = EpochRange.MINUTES_PER_DAY;
+
+  @Test
+  public void freeTimeRunsAcrossMidnight() {
+    MultiDayCalendar calendar = new MultiDayCalendar();
+    long dayStart = DAY_2020_01_01 * DAY;
+    // Busy until 20:00 on the first day and from 06:00 on the second
+    calendar.add(EpochRange.fromStartEnd(dayStart, dayStart + 1200), Arrays.asList(PERSON_A));
+    calendar.add(EpochRange.fromStartEnd(dayStart + DAY + 360, dayStart + 2 * DAY),
+        Arrays.asList(PERSON_A));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 600);
+    List<EpochRange> actual = calendar.query(request, EpochRange.fromStartDuration(dayStart,
+        2 * DAY));
+    List<EpochRange> expected =
+        Arrays.asList(EpochRange.fromStartEnd(dayStart + 1200, dayStart + DAY + 360));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void eventsOutsideTheHorizonAreIgnored() {
+    MultiDayCalendar calendar = new MultiDayCalendar();
+    calendar.addDay(DAY_2020_01_01, Arrays.asList(
+        new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A))));
+    calendar.addDay(DAY_2020_01_01 + 2, Arrays.asList(
+        new Event("Event 2", TimeRange.fromStartEnd(0, 60, false), Arrays.asList(PERSON_A))));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 30);
+    List<EpochRange> actual = calendar.query(request, EpochRange.ofDay(DAY_2020_01_01 + 1));
+    List<EpochRange> expected = Arrays.asList(EpochRange.ofDay(DAY_2020_01_01 + 1));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void emptyHorizonHasNoRoom() {
+    MultiDayCalendar calendar = new MultiDayCalendar();
+    calendar.addDay(DAY_2020_01_01, Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(0, 60, false), Arrays.asList(PERSON_A))));
+
+    // Empty horizons at midnight and part way through the day
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 0);
+    long dayStart = DAY_2020_01_01 * DAY;
+    Assert.assertEquals(Collections.emptyList(),
+        calendar.query(request, EpochRange.fromStartDuration(dayStart, 0)));
+    Assert.assertEquals(Collections.emptyList(),
+        calendar.query(request, EpochRange.fromStartDuration(dayStart + 120, 0)));
+  }
+
+  @Test
+  public void matchesMinuteByMinuteAnswerOverAWeek() {
+    Random random = new Random(25);
+    long weekStart = DAY_2020_01_01 * DAY;
+    for (int week = 0; week < 50; week++) {
+      MultiDayCalendar calendar = new MultiDayCalendar();
+      List<EpochRange> ranges = new ArrayList<>();
+      List<Collection<String>> attendees = new ArrayList<>();
+      for (int i = 0; i < 60; i++) {
+        long start = weekStart - DAY + random.nextInt(9 * DAY);
+        EpochRange range = EpochRange.fromStartDuration(start, 1 + random.nextInt(2 * DAY));
+        Set<String> people = RandomCalendars.attendees(random, 1 + random.nextInt(3));
+        calendar.add(range, people);
+        ranges.add(range);
+        attendees.add(people);
+      }
+
+      // A horizon that does not line up with day boundaries
+      EpochRange horizon =
+          EpochRange.fromStartDuration(weekStart + random.nextInt(DAY), 7 * DAY);
+      Set<String> people = RandomCalendars.attendees(random, 1 + random.nextInt(2));
+      int duration = 1 + random.nextInt(DAY);
+
+      Assert.assertEquals(
+          RandomCalendars.expectedFreeRanges(ranges, attendees, people, horizon, duration),
+          calendar.query(new MeetingRequest(people, duration), horizon));
+    }
+  }
+}
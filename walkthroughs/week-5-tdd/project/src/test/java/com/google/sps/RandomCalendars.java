@@ -0,0 +1,142 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/** Random calendars, and a minute-by-minute reference answer to check strategies against. */
+final class RandomCalendars {
+  static final List<String> PEOPLE = new ArrayList<>();
+
+  static {
+    for (int i = 0; i < 12; i++) {
+      PEOPLE.add("Person " + i);
+    }
+  }
+
+  private RandomCalendars() {}
+
+  /** Returns {@code count} events of up to three attendees each, at random times of the day. */
+  static List<Event> events(Random random, int count) {
+    List<Event> events = new ArrayList<>();
+    int day = TimeRange.WHOLE_DAY.duration();
+    for (int i = 0; i < count; i++) {
+      int start = random.nextInt(day);
+      int end = start + 1 + random.nextInt(Math.min(180, day - start));
+      events.add(new Event("Event " + i, TimeRange.fromStartEnd(start, end, false),
+          attendees(random, 1 + random.nextInt(3))));
+    }
+    return events;
+  }
+
+  /** Returns {@code count} distinct random people. */
+  static Set<String> attendees(Random random, int count) {
+    Set<String> attendees = new HashSet<>();
+    while (attendees.size() < count) {
+      attendees.add(PEOPLE.get(random.nextInt(PEOPLE.size())));
+    }
+    return attendees;
+  }
+
+  /** Returns a request for up to three required and up to three optional random attendees. */
+  static MeetingRequest request(Random random) {
+    MeetingRequest request =
+        new MeetingRequest(attendees(random, random.nextInt(4)), 1 + random.nextInt(120));
+    for (String attendee : attendees(random, random.nextInt(4))) {
+      request.addOptionalAttendee(attendee);
+    }
+    return request;
+  }
+
+  /**
+   * Returns what a {@code SchedulingStrategy} should answer for {@code request}, using
+   * {@link #expectedFreeRanges}.
+   */
+  static List<TimeRange> expectedAnswer(Collection<Event> events, MeetingRequest request) {
+    Set<String> everyone = new HashSet<>(request.getAttendees());
+    everyone.addAll(request.getOptionalAttendees());
+    List<TimeRange> free = expectedFreeRanges(events, everyone, request.getDuration());
+    if (free.isEmpty() && !request.getAttendees().isEmpty()) {
+      free = expectedFreeRanges(events, request.getAttendees(), request.getDuration());
+    }
+    return free;
+  }
+
+  /**
+   * Returns the free ranges of the day of at least {@code duration} minutes for
+   * {@code attendees}, using the multi-day {@link #expectedFreeRanges} on a single day.
+   */
+  static List<TimeRange> expectedFreeRanges(Collection<Event> events,
+      Collection<String> attendees, long duration) {
+    List<EpochRange> ranges = new ArrayList<>();
+    List<Collection<String>> rangeAttendees = new ArrayList<>();
+    for (Event event : events) {
+      ranges.add(EpochRange.onDay(0, event.getWhen()));
+      rangeAttendees.add(event.getAttendees());
+    }
+
+    List<TimeRange> free = new ArrayList<>();
+    for (EpochRange range : expectedFreeRanges(ranges, rangeAttendees, attendees,
+        EpochRange.ofDay(0), duration)) {
+      free.add(TimeRange.fromStartEnd((int) range.start(), (int) range.end(), false));
+    }
+    return free;
+  }
+
+  /**
+   * Returns the free ranges within {@code horizon} of at least {@code duration} minutes for
+   * {@code people}, found by marking every busy minute. {@code attendees} holds the people busy
+   * for each of {@code ranges}.
+   */
+  static List<EpochRange> expectedFreeRanges(List<EpochRange> ranges,
+      List<Collection<String>> attendees, Collection<String> people, EpochRange horizon,
+      long duration) {
+    boolean[] busy = new boolean[(int) horizon.duration()];
+    for (int i = 0; i < ranges.size(); i++) {
+      Set<String> shared = new HashSet<>(attendees.get(i));
+      shared.retainAll(people);
+      if (shared.isEmpty()) {
+        continue;
+      }
+      for (long minute = ranges.get(i).start(); minute < ranges.get(i).end(); minute++) {
+        if (horizon.contains(minute)) {
+          busy[(int) (minute - horizon.start())] = true;
+        }
+      }
+    }
+
+    List<EpochRange> free = new ArrayList<>();
+    int minute = 0;
+    while (minute < busy.length) {
+      if (busy[minute]) {
+        minute++;
+        continue;
+      }
+      int start = minute;
+      while (minute < busy.length && !busy[minute]) {
+        minute++;
+      }
+      if (minute - start >= duration) {
+        free.add(EpochRange.fromStartEnd(horizon.start() + start, horizon.start() + minute));
+      }
+    }
+    return free;
+  }
+}
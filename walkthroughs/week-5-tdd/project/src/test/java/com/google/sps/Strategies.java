@@ -0,0 +1,43 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Every {@code SchedulingStrategy}, as parameters for tests run against each of them. Strategies
+ * that are built over a calendar's events are built afresh for the events of each query.
+ */
+final class Strategies {
+  static final String INCREMENTAL = "incremental";
+
+  private Strategies() {}
+
+  /** Returns {name, strategy} pairs for {@code Parameterized} tests. */
+  static Collection<Object[]> all() {
+    SchedulingStrategy indexed = (events, request) -> {
+      BusyIntervalIndex index = new BusyIntervalIndex(events);
+      return new IndexedStrategy(index).query(index.getEvents(), request);
+    };
+    SchedulingStrategy bitset =
+        (events, request) -> new BitsetStrategy(events).query(events, request);
+    return Arrays.asList(
+        new Object[] {INCREMENTAL, new IncrementalInsertStrategy()},
+        new Object[] {"sweep-line", new SweepLineStrategy()},
+        new Object[] {"bitset", bitset},
+        new Object[] {"indexed", indexed});
+  }
+}